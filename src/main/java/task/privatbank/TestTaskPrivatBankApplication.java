@@ -2,6 +2,7 @@ package task.privatbank;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -11,6 +12,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
  * Annotations:
  * - @EnableScheduling to activate scheduled tasks.
  * - @EnableCaching to enable caching in the Spring context.
+ * - @ConfigurationPropertiesScan to bind the "exchange.*" configuration.
  * <p>
  * Author - Serhii Shulha
  * Test Task for Privat Bank
@@ -18,6 +20,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @SpringBootApplication
 @EnableScheduling
 @EnableCaching
+@ConfigurationPropertiesScan
 public class TestTaskPrivatBankApplication {
     public static void main(String[] args) {
         SpringApplication.run(TestTaskPrivatBankApplication.class, args);
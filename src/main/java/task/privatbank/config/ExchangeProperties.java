@@ -0,0 +1,369 @@
+package task.privatbank.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import task.privatbank.model.CandleResolution;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Externalized configuration of the exchange rate ingestion, bound from
+ * the "exchange.*" properties.
+ * <p>
+ * Sections:
+ * - ingestion: cycle deadline and provider quorum.
+ * - providers: per-provider settings keyed by provider name (e.g., "privatbank", "monobank").
+ * - http:      the HTTP client shared by all provider calls.
+ * - storage:   partitioning and retention of the stored data, the optional tick store
+ *              and the write-behind queue.
+ */
+@Data
+@ConfigurationProperties(prefix = "exchange")
+public class ExchangeProperties {
+
+    /** Settings of a single ingestion cycle. */
+    private Ingestion ingestion = new Ingestion();
+
+    /** Per-provider settings keyed by provider name. */
+    private Map<String, Provider> providers = new HashMap<>();
+
+    /** Settings of the HTTP client shared by all provider calls. */
+    private Http http = new Http();
+
+    /** Partitioning and retention of the stored averages. */
+    private Storage storage = new Storage();
+
+    /**
+     * Returns the settings of the given provider, falling back to defaults
+     * when the provider has no explicit configuration.
+     *
+     * @param name the provider name
+     * @return the provider settings, never null
+     */
+    public Provider getProvider(String name) {
+        return providers.computeIfAbsent(name, key -> new Provider());
+    }
+
+    @Data
+    public static class Ingestion {
+
+        /** Upper bound for one cycle; providers are queried in parallel. */
+        private Duration deadline = Duration.ofSeconds(30);
+
+        /** Minimum number of providers that must quote a currency to store its average. */
+        private int quorum = 1;
+
+        /**
+         * Currencies (ISO 4217 alphabetic codes) whose averages are computed in every aggregation;
+         * "*" computes every currency quoted by at least one provider.
+         */
+        private List<String> currencies = new ArrayList<>(List.of("USD", "EUR"));
+
+        /** How often the latest provider snapshots are merged into averages. */
+        private Duration aggregateInterval = Duration.ofHours(1);
+
+        /** Random delay in [0, jitter) added to every aggregation. */
+        private Duration aggregateJitter = Duration.ZERO;
+
+        /** Whether aggregations fire on wall-clock multiples of the interval. */
+        private boolean aggregateAlign = true;
+    }
+
+    @Data
+    public static class Provider {
+
+        /** The endpoint of the provider API; the provider default is used when empty. */
+        private String url;
+
+        /**
+         * Numeric currency pairs to keep from the payload, as "currencyCodeA:currencyCodeB"
+         * (e.g., "840:980" for USD/UAH); "*:980" keeps every currency quoted against UAH.
+         * The provider default is used when empty.
+         */
+        private List<String> trackedPairs = new ArrayList<>();
+
+        /** Polling cadence of this provider. */
+        private Poll poll = new Poll();
+
+        /** Adaptive rate limiting of the calls to this provider. */
+        private RateLimit rateLimit = new RateLimit();
+
+        /** Circuit breaker guarding the calls to this provider. */
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+        /** Oldest last-known-good snapshot that may stand in for the provider while it is unavailable. */
+        private Duration maxStaleness = Duration.ofHours(2);
+
+        /** Hedged requests against the latency tail of this provider. */
+        private Hedge hedge = new Hedge();
+    }
+
+    @Data
+    public static class Poll {
+
+        /** Time between two polls. */
+        private Duration interval = Duration.ofHours(1);
+
+        /** Random delay in [0, jitter) added to every poll; must be shorter than the interval. */
+        private Duration jitter = Duration.ZERO;
+
+        /** Whether polls fire on wall-clock multiples of the interval. */
+        private boolean align = true;
+    }
+
+    @Data
+    public static class RateLimit {
+
+        /** Whether calls to the provider are rate limited at all. */
+        private boolean enabled = true;
+
+        /** Number of calls that may be sent back to back (bucket capacity). */
+        private int burst = 1;
+
+        /** Time between two calls before anything was learned about the provider. */
+        private Duration initialInterval = Duration.ofSeconds(1);
+
+        /** Shortest time between two calls the limiter will ever probe for. */
+        private Duration minInterval = Duration.ofMillis(100);
+
+        /** Longest time between two calls the limiter backs off to. */
+        private Duration maxInterval = Duration.ofMinutes(10);
+
+        /** Rate multiplier applied after each successful call. */
+        private double increaseFactor = 1.05;
+
+        /** Rate multiplier applied after each 429 response. */
+        private double decreaseFactor = 0.5;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+
+        /** Whether calls to the provider are guarded by a circuit breaker at all. */
+        private boolean enabled = true;
+
+        /** Number of most recent calls the failure and slow call rates are computed over. */
+        private int windowSize = 10;
+
+        /** Number of recorded calls needed before the breaker may open. */
+        private int minimumCalls = 5;
+
+        /** Failure rate in percent that opens the breaker. */
+        private int failureRateThreshold = 50;
+
+        /** Calls longer than this count as slow. */
+        private Duration slowCallDuration = Duration.ofSeconds(5);
+
+        /** Slow call rate in percent that opens the breaker. */
+        private int slowCallRateThreshold = 80;
+
+        /** How long the breaker stays open before a probe call is let through. */
+        private Duration openDuration = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Hedge {
+
+        /** Whether slow calls to the provider are hedged with a second request. */
+        private boolean enabled = false;
+
+        /** Latency percentile of recent calls after which the hedge is sent. */
+        private double percentile = 95.0;
+
+        /** Number of recent calls needed before the percentile is trusted; maxDelay is used until then. */
+        private int minSamples = 20;
+
+        /** Lower bound of the hedge delay. */
+        private Duration minDelay = Duration.ofMillis(200);
+
+        /** Upper bound of the hedge delay. */
+        private Duration maxDelay = Duration.ofSeconds(5);
+
+        /** Hedges allowed as a percentage of all requests to the provider. */
+        private double budgetPercent = 10.0;
+    }
+
+    @Data
+    public static class Http {
+
+        /** Timeout for establishing a TCP connection. */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /** Timeout between sending the request and receiving the response headers. */
+        private Duration responseTimeout = Duration.ofSeconds(10);
+
+        /** Maximum inactivity while reading from an established connection. */
+        private Duration readTimeout = Duration.ofSeconds(10);
+
+        /** Maximum inactivity while writing to an established connection. */
+        private Duration writeTimeout = Duration.ofSeconds(10);
+
+        /** Maximum number of pooled connections per remote host. */
+        private int maxConnections = 16;
+
+        /** How long a request may wait for a free pooled connection. */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        /** Idle connections are closed after this time. */
+        private Duration maxIdleTime = Duration.ofMinutes(2);
+
+        /** Connections are closed after this lifetime, even when busy in between. */
+        private Duration maxLifeTime = Duration.ofMinutes(30);
+
+        /** How often the pool evicts idle and expired connections in the background. */
+        private Duration evictionInterval = Duration.ofSeconds(30);
+
+        /** Negotiates HTTP/2 over TLS (ALPN), falling back to HTTP/1.1. */
+        private boolean http2 = false;
+
+        /** Sends "Accept-Encoding: gzip" and decompresses responses. */
+        private boolean compression = true;
+
+        /** Publishes connection pool and client metrics to Micrometer. */
+        private boolean metrics = true;
+
+        /**
+         * Per-host pool overrides keyed by host name,
+         * e.g. "exchange.http.hosts.[api.monobank.ua].max-connections=2".
+         */
+        private Map<String, HostPool> hosts = new HashMap<>();
+    }
+
+    @Data
+    public static class HostPool {
+
+        /** The remote port the override applies to. */
+        private int port = 443;
+
+        /** Maximum number of pooled connections to this host; the shared value is used when empty. */
+        private Integer maxConnections;
+
+        /** Idle time for connections to this host; the shared value is used when empty. */
+        private Duration maxIdleTime;
+    }
+
+    @Data
+    public static class Storage {
+
+        /** Whether the partition maintenance job runs. */
+        private boolean partitionMaintenance = true;
+
+        /** When the partition maintenance job runs, besides once at startup. */
+        private String maintenanceCron = "0 15 0 * * *";
+
+        /** Number of monthly average_rates partitions kept ready ahead of the current month. */
+        private int premakeMonths = 3;
+
+        /** Age after which whole monthly partitions are dropped; zero keeps everything. */
+        private Period retention = Period.ZERO;
+
+        /**
+         * How far back the latest-rate queries look. The bound lets PostgreSQL prune
+         * every older partition; a currency not updated within it has no latest rate.
+         */
+        private Duration latestLookback = Duration.ofDays(31);
+
+        /**
+         * Whether an average equal to the current row of its currency extends that row's valid_to
+         * instead of inserting a row, so only rate changes are stored. Runs end at midnight.
+         */
+        private boolean runLength = false;
+
+        /** The memory-mapped tick store that serves the latest-rate reads, see MappedTickStore. */
+        private TickStore tickStore = new TickStore();
+
+        /** The queue that decouples ingestion from database commits, see WriteBehindQueue. */
+        private WriteBehind writeBehind = new WriteBehind();
+
+        /** Chunked deletion of expired rows per table and resolution, see RetentionJob. */
+        private Purge purge = new Purge();
+    }
+
+    @Data
+    public static class TickStore {
+
+        /** Whether averages are also appended to the tick store and reads are served from it. */
+        private boolean enabled = false;
+
+        /** Directory holding one file per currency. */
+        private Path directory = Path.of("data", "ticks");
+
+        /** Records mapped when a currency file is created; the mapping doubles whenever it is full. */
+        private int initialCapacity = 65_536;
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        /** Whether averages are queued and flushed in the background instead of saved by the scheduler. */
+        private boolean enabled = false;
+
+        /** Maximum number of queued averages. */
+        private int capacity = 10_000;
+
+        /** Maximum number of averages written by one flush. */
+        private int batchSize = 500;
+
+        /** Longest time an average waits in the queue before its batch is flushed. */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /** How long a producer blocks on a full queue before its averages are spilled to the file. */
+        private Duration offerTimeout = Duration.ofSeconds(5);
+
+        /** Retries of a failed flush before the batch is spilled to the file. */
+        private int maxRetries = 3;
+
+        /** Delay before the first retry; doubled on every further retry. */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+
+        /** Upper bound of the retry delay. */
+        private Duration maxRetryBackoff = Duration.ofMinutes(1);
+
+        /** File holding the averages that could not be written; replayed once the database is back. */
+        private Path spillFile = Path.of("data", "write-behind.spill");
+    }
+
+    @Data
+    public static class Purge {
+
+        /** Whether the retention job deletes expired rows. */
+        private boolean enabled = false;
+
+        /** When the retention job runs, on its own thread. */
+        private String cron = "0 45 * * * *";
+
+        /**
+         * Age after which the stored averages are deleted, rounded down to whole days; zero keeps
+         * them forever. Independent of "retention", which alone decides the partition drops.
+         */
+        private Duration averages = Duration.ZERO;
+
+        /** Age after which per-source currency_rates rows are deleted; zero keeps them forever. */
+        private Duration currencyRates = Duration.ZERO;
+
+        /**
+         * Age after which candles are deleted, keyed by resolution (e.g. "candles.minute=P30D");
+         * a missing or zero entry keeps that resolution forever.
+         */
+        private Map<CandleResolution, Duration> candles = new EnumMap<>(CandleResolution.class);
+
+        /** Rows deleted by one statement; every chunk commits on its own, so row locks are held briefly. */
+        private int chunkSize = 1_000;
+
+        /** Pause after every chunk that deleted rows, leaving room for vacuum, replicas and the ingestion. */
+        private Duration chunkPause = Duration.ofMillis(100);
+
+        /** Replay lag of the slowest standby above which chunks are held back; zero disables the check. */
+        private Duration maxReplicationLag = Duration.ofSeconds(10);
+
+        /** Upper bound of one run; whatever is left is deleted by the next run. */
+        private Duration maxRunTime = Duration.ofMinutes(10);
+    }
+}
@@ -0,0 +1,108 @@
+package task.privatbank.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Configuration of the HTTP client shared by all rate provider calls.
+ * <p>
+ * A single reactor-netty connection pool keeps warm keep-alive connections
+ * per remote host, so frequent polling does not pay a TCP and TLS handshake
+ * on every cycle. Pool sizing, idle eviction, timeouts, HTTP/2 and compression
+ * are configured through "exchange.http.*".
+ * <p>
+ * With metrics enabled, pool gauges (reactor.netty.connection.provider.*) and
+ * client timers (reactor.netty.http.client.*) are exposed via /actuator/metrics.
+ */
+@Configuration
+@Slf4j
+public class HttpClientConfig {
+
+    /**
+     * Pool of connections to the provider hosts, disposed on shutdown.
+     *
+     * @param exchangeProperties the exchange configuration
+     * @return the shared connection provider
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider providerConnectionProvider(ExchangeProperties exchangeProperties) {
+        ExchangeProperties.Http http = exchangeProperties.getHttp();
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("exchange-providers")
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+                .maxIdleTime(http.getMaxIdleTime())
+                .maxLifeTime(http.getMaxLifeTime())
+                .evictInBackground(http.getEvictionInterval())
+                .metrics(http.isMetrics());
+
+        http.getHosts().forEach((host, pool) -> builder.forRemoteHost(
+                InetSocketAddress.createUnresolved(host, pool.getPort()),
+                spec -> {
+                    if (pool.getMaxConnections() != null) {
+                        spec.maxConnections(pool.getMaxConnections());
+                    }
+                    if (pool.getMaxIdleTime() != null) {
+                        spec.maxIdleTime(pool.getMaxIdleTime());
+                    }
+                }));
+
+        log.info("Provider connection pool: maxConnections={}, maxIdleTime={}, host overrides={}",
+                http.getMaxConnections(), http.getMaxIdleTime(), http.getHosts().keySet());
+        return builder.build();
+    }
+
+    /**
+     * Reactor-netty client on top of the shared pool, with timeouts and protocol settings applied.
+     *
+     * @param providerConnectionProvider the shared connection pool
+     * @param exchangeProperties         the exchange configuration
+     * @return the configured HttpClient
+     */
+    @Bean
+    public HttpClient providerHttpClient(ConnectionProvider providerConnectionProvider,
+                                         ExchangeProperties exchangeProperties) {
+        ExchangeProperties.Http http = exchangeProperties.getHttp();
+        HttpClient client = HttpClient.create(providerConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(http.getResponseTimeout())
+                .compress(http.isCompression())
+                .metrics(http.isMetrics(), Function.identity())
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(http.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(http.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+
+        if (http.isHttp2()) {
+            // HTTP/2 is negotiated through ALPN, which requires TLS
+            client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        return client;
+    }
+
+    /**
+     * WebClient used by every RateProvider.
+     *
+     * @param webClientBuilder   the Spring Boot configured builder (codecs, observation)
+     * @param providerHttpClient the tuned reactor-netty client
+     * @return the shared WebClient
+     */
+    @Bean
+    public WebClient providerWebClient(WebClient.Builder webClientBuilder, HttpClient providerHttpClient) {
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(providerHttpClient))
+                .build();
+    }
+}
@@ -1,25 +1,52 @@
 package task.privatbank.conrtoller;
 
-import jakarta.persistence.EntityNotFoundException;
-import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import task.privatbank.currency.FixedPoint;
+import task.privatbank.currency.SupportedCurrency;
+import task.privatbank.dto.AverageRateView;
+import task.privatbank.dto.ExportFormat;
+import task.privatbank.dto.HistoryPage;
+import task.privatbank.model.CandleResolution;
+import task.privatbank.model.RateCandle;
+import task.privatbank.repository.MappedTickStore;
+import task.privatbank.service.CandleService;
 import task.privatbank.service.ExchangeRateService;
-import task.privatbank.model.AverageRate;
-import task.privatbank.repository.AverageRateRepository;
+import task.privatbank.service.HistoryService;
 
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * REST controller providing endpoints for retrieving currency rate information.
  * <p>
  * Endpoints:
- * - /dynamics/day?currency=USD|EUR: returns hourly dynamics for the current day
- * - /dynamics/hour?currency=USD|EUR: returns change for the last hour
- * - /last?currency=USD|EUR: returns the latest AverageRate entry
+ * - /dynamics/day?currency=USD: returns hourly dynamics for the current day
+ * - /dynamics/day/all: returns hourly dynamics for the current day of every currency
+ * - /dynamics/hour?currency=USD: returns change for the last hour
+ * - /last?currency=USD: returns the latest average rate
+ * - /history?currency=USD&amp;from=...&amp;to=...&amp;cursor=...&amp;size=100: returns the rate history
+ *   page by page, newest first
+ * - /history/export?currency=USD&amp;format=CSV|NDJSON&amp;gzip=false: streams the rate history as a download
+ * - /candles?currency=USD&amp;resolution=HOUR&amp;from=...&amp;to=...: returns OHLC candles
+ * - /ticks?currency=USD&amp;from=...&amp;to=...: returns raw ticks of the tick store, if enabled
+ * Every ISO 4217 code known to the CurrencyRegistry is accepted.
  */
 @RestController
 @RequiredArgsConstructor
@@ -30,57 +57,204 @@ public class ExchangeRateController {
 
     @Qualifier("exchangeRateService")
     private final ExchangeRateService exchangeRateService;
-    @Qualifier("averageRateRepository")
-    private final AverageRateRepository averageRateRepository;
+    @Qualifier("candleService")
+    private final CandleService candleService;
+    @Qualifier("historyService")
+    private final HistoryService historyService;
+    private final ObjectProvider<MappedTickStore> tickStore;
 
     /**
      * Returns a list of strings describing hourly change percentages
      * for the specified currency from the start of the current day.
      *
-     * @param currency must be "USD" or "EUR"
+     * @param currency an ISO 4217 alphabetic code, e.g. "USD"
      * @return list of changes in percentage, with timestamps
      */
     @GetMapping("/dynamics/day")
     public List<String> getHourlyDynamics(
             @RequestParam
-            @Pattern(regexp = "USD|EUR", message = "Currency must be 'USD' or 'EUR'")
+            @SupportedCurrency
             String currency
     ) {
         log.info("Handling GET request for hourly dynamics of currency={}", currency);
         return exchangeRateService.getHourlyDynamics(currency);
     }
 
+    /**
+     * Returns the hourly change percentages of every currency
+     * from the start of the current day, computed in one query.
+     *
+     * @return lists of changes in percentage, with timestamps, keyed by currency
+     */
+    @GetMapping("/dynamics/day/all")
+    public Map<String, List<String>> getHourlyDynamicsForAll() {
+        log.info("Handling GET request for hourly dynamics of all currencies");
+        return exchangeRateService.getHourlyDynamicsForAll();
+    }
+
     /**
      * Returns the last hour change (in percent) for the specified currency.
      *
-     * @param currency must be "USD" or "EUR"
+     * @param currency an ISO 4217 alphabetic code, e.g. "USD"
      * @return a string with the last hour change percentage
      */
     @GetMapping("/dynamics/hour")
     public String getLastHourChange(
             @RequestParam
-            @Pattern(regexp = "USD|EUR", message = "Currency must be 'USD' or 'EUR'")
+            @SupportedCurrency
             String currency
     ) {
         log.info("Handling GET request for last hour change of currency={}", currency);
-        double change = exchangeRateService.getLastHourChange(currency);
-        return "Dynamic for last hour for " + currency + ": " + change + "%";
+        long change = exchangeRateService.getLastHourChange(currency);
+        return "Dynamic for last hour for " + currency + ": " + FixedPoint.formatBasisPoints(change) + "%";
     }
 
     /**
-     * Retrieves the latest AverageRate record for the specified currency.
+     * Retrieves the latest average rate for the specified currency.
      *
-     * @param currency must be "USD" or "EUR"
-     * @return the most recent AverageRate, or throws an exception if not found
+     * @param currency an ISO 4217 alphabetic code, e.g. "USD"
+     * @return the most recent rate, or throws an exception if not found
+     *         within "exchange.storage.latest-lookback"
      */
     @GetMapping("/last")
-    public AverageRate getLastRate(
+    public AverageRateView getLastRate(
             @RequestParam
-            @Pattern(regexp = "USD|EUR", message = "Currency must be 'USD' or 'EUR'")
+            @SupportedCurrency
             String currency
     ) {
         log.info("Handling GET request for the latest rate of currency={}", currency);
-        return averageRateRepository.findTopByCurrencyOrderByTimestampDesc(currency.toUpperCase())
-                .orElseThrow(() -> new EntityNotFoundException("Records for currency " + currency + " not found"));
+        return exchangeRateService.getLastRate(currency);
+    }
+
+    /**
+     * Returns one page of the rate history of the specified currency, newest first.
+     * Pass the nextCursor of a page as the cursor of the following request.
+     *
+     * @param currency an ISO 4217 alphabetic code, e.g. "USD"
+     * @param from     ISO date-time; rows still valid at or after it, defaults to the whole history
+     * @param to       ISO date-time, inclusive upper bound; defaults to now
+     * @param cursor   the nextCursor of the previous page; omitted for the first page
+     * @param size     the page size, at most HistoryService.MAX_PAGE_SIZE
+     * @return the page and the cursor of the next one (null on the last page)
+     */
+    @GetMapping("/history")
+    public HistoryPage getHistory(
+            @RequestParam
+            @SupportedCurrency
+            String currency,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + HistoryService.DEFAULT_PAGE_SIZE)
+            @Min(1) @Max(HistoryService.MAX_PAGE_SIZE)
+            int size
+    ) {
+        log.info("Handling GET request for history of currency={}, size={}", currency, size);
+        return historyService.getHistory(currency, from, to, cursor, size);
+    }
+
+    /**
+     * Streams the rate history of the specified currency, oldest first, as a file download.
+     * Rows go from a server-side database cursor straight to the response, so any range
+     * can be exported with constant memory.
+     *
+     * @param currency an ISO 4217 alphabetic code, e.g. "USD"
+     * @param from     ISO date-time; rows still valid at or after it, defaults to the whole history
+     * @param to       ISO date-time, inclusive upper bound; defaults to now
+     * @param format   CSV (default) or NDJSON
+     * @param gzip     whether to gzip the file
+     * @return the streaming response
+     */
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam
+            @SupportedCurrency
+            String currency,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        log.info("Handling GET request for history export of currency={}, format={}, gzip={}", currency, format, gzip);
+        String fileName = currency.toUpperCase(Locale.ROOT) + "-history." + format.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = output -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(output, 64 * 1024);
+                historyService.export(currency, from, to, format, compressed);
+                compressed.finish();
+            } else {
+                historyService.export(currency, from, to, format, output);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    /**
+     * Returns the OHLC candles of the specified currency, read from the rollup table.
+     *
+     * @param currency   an ISO 4217 alphabetic code, e.g. "USD"
+     * @param resolution MINUTE, HOUR (default) or DAY
+     * @param from       ISO date-time of the first bucket; defaults to the start of the current day
+     * @param to         ISO date-time of the last bucket; defaults to now
+     * @return the candles ordered by bucket start, at most CandleService.MAX_CANDLES
+     */
+    @GetMapping("/candles")
+    public List<RateCandle> getCandles(
+            @RequestParam
+            @SupportedCurrency
+            String currency,
+            @RequestParam(defaultValue = "HOUR") CandleResolution resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        log.info("Handling GET request for {} candles of currency={}", resolution, currency);
+        LocalDateTime end = Objects.requireNonNullElseGet(to, LocalDateTime::now);
+        LocalDateTime start = Objects.requireNonNullElseGet(from, () -> end.toLocalDate().atStartOfDay());
+        return candleService.getCandles(currency, resolution, start, end);
+    }
+
+    /**
+     * Returns the raw ticks of the specified currency within [from, to] from the tick store,
+     * as consecutive big-endian records of MappedTickStore.RECORD_SIZE bytes:
+     * epoch-ms (UTC reading of the timestamp), buy and sell scaled by 10^4.
+     * <p>
+     * The records are a contiguous region of the tick file, copied to the response with
+     * FileChannel.transferTo instead of being decoded and re-encoded.
+     *
+     * @param currency an ISO 4217 alphabetic code, e.g. "USD"
+     * @param from     ISO date-time, inclusive lower bound; defaults to the start of the current day
+     * @param to       ISO date-time, inclusive upper bound; defaults to now
+     * @return the ticks, or 404 when the tick store is disabled
+     */
+    @GetMapping("/ticks")
+    public ResponseEntity<StreamingResponseBody> getTicks(
+            @RequestParam
+            @SupportedCurrency
+            String currency,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        log.info("Handling GET request for ticks of currency={}", currency);
+        MappedTickStore store = tickStore.getIfAvailable();
+        if (store == null) {
+            return ResponseEntity.notFound().build();
+        }
+        LocalDateTime end = Objects.requireNonNullElseGet(to, LocalDateTime::now);
+        LocalDateTime start = Objects.requireNonNullElseGet(from, () -> end.toLocalDate().atStartOfDay());
+        MappedTickStore.TickRange range = store.findRange(currency.toUpperCase(Locale.ROOT), start, end);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(range.length());
+        if (range.length() == 0) {
+            return response.build();
+        }
+        return response.body(output -> {
+            store.transferTo(range, Channels.newChannel(output));
+            output.flush();
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package task.privatbank.currency;
+
+/**
+ * An ISO 4217 currency as known to the CurrencyRegistry.
+ * <p>
+ * Instances are interned by the registry: there is exactly one instance per
+ * currency, so they can be compared by identity and used as array indexes
+ * through their numeric code.
+ *
+ * @param numericCode    the ISO 4217 numeric code (e.g., 840)
+ * @param alphaCode      the ISO 4217 alphabetic code (e.g., "USD"), interned
+ * @param fractionDigits the default number of fraction digits
+ * @param displayName    the English display name (e.g., "US Dollar")
+ */
+public record CurrencyCode(int numericCode, String alphaCode, int fractionDigits, String displayName) {
+
+    @Override
+    public String toString() {
+        return alphaCode;
+    }
+}
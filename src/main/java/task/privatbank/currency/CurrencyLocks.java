@@ -0,0 +1,73 @@
+package task.privatbank.currency;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One lock per currency, indexed by the ISO 4217 numeric code.
+ * <p>
+ * Writes of different currencies touch different rows and candles, so they only need to
+ * exclude writes of the same currency. The numeric code space is small, so every currency
+ * gets a stripe of its own and unrelated currencies never contend.
+ * <p>
+ * Several currencies are locked in ascending numeric code order, which rules out deadlocks
+ * between callers locking overlapping sets.
+ */
+public final class CurrencyLocks {
+
+    private final ReentrantLock[] stripes = new ReentrantLock[CurrencyRegistry.CODE_SPACE];
+
+    public CurrencyLocks() {
+        Arrays.setAll(stripes, i -> new ReentrantLock());
+    }
+
+    /**
+     * Locks a single currency.
+     *
+     * @param currency the currency
+     * @return the held lock, to be closed with try-with-resources
+     */
+    public Held lock(CurrencyCode currency) {
+        ReentrantLock lock = stripes[currency.numericCode()];
+        lock.lock();
+        return new Held(new ReentrantLock[]{lock}, 1);
+    }
+
+    /**
+     * Locks several currencies in ascending numeric code order; duplicates are locked once.
+     *
+     * @param currencies the currencies
+     * @return the held locks, to be closed with try-with-resources
+     */
+    public Held lockAll(Collection<CurrencyCode> currencies) {
+        int[] codes = currencies.stream().mapToInt(CurrencyCode::numericCode).sorted().distinct().toArray();
+        ReentrantLock[] held = new ReentrantLock[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            held[i] = stripes[codes[i]];
+            held[i].lock();
+        }
+        return new Held(held, held.length);
+    }
+
+    /**
+     * Locks held by {@link #lock} or {@link #lockAll}; closing releases them in reverse order.
+     */
+    public static final class Held implements AutoCloseable {
+
+        private final ReentrantLock[] locks;
+        private final int count;
+
+        private Held(ReentrantLock[] locks, int count) {
+            this.locks = locks;
+            this.count = count;
+        }
+
+        @Override
+        public void close() {
+            for (int i = count - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package task.privatbank.currency;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registry of all ISO 4217 currencies known to the JDK.
+ * <p>
+ * Numeric codes are resolved through a dense array indexed by the code itself,
+ * so the ingestion hot path needs neither a switch nor a string comparison.
+ * Alphabetic codes (request parameters, PrivatBank payloads) are resolved through
+ * a hash map once at the edge; everything behind it works with the interned
+ * CurrencyCode instances.
+ */
+@Component
+public class CurrencyRegistry {
+
+    /** ISO 4217 numeric codes have three digits. */
+    public static final int CODE_SPACE = 1000;
+
+    /** The base currency of all provider quotes. */
+    public static final int UAH = 980;
+
+    private final CurrencyCode[] byNumeric = new CurrencyCode[CODE_SPACE];
+    private final Map<String, CurrencyCode> byAlpha;
+    private final List<CurrencyCode> all;
+
+    public CurrencyRegistry() {
+        Map<String, CurrencyCode> alpha = new HashMap<>();
+        List<Currency> currencies = new ArrayList<>(Currency.getAvailableCurrencies());
+        // deterministic choice when a withdrawn and a current code share a numeric code
+        currencies.sort((a, b) -> a.getCurrencyCode().compareTo(b.getCurrencyCode()));
+        for (Currency currency : currencies) {
+            int numeric = currency.getNumericCode();
+            if (numeric <= 0 || numeric >= CODE_SPACE) {
+                continue;
+            }
+            if (byNumeric[numeric] == null) {
+                byNumeric[numeric] = new CurrencyCode(numeric, currency.getCurrencyCode().intern(),
+                        currency.getDefaultFractionDigits(), currency.getDisplayName(Locale.ENGLISH));
+            }
+            alpha.put(currency.getCurrencyCode(), byNumeric[numeric]);
+        }
+        this.byAlpha = Map.copyOf(alpha);
+
+        List<CurrencyCode> known = new ArrayList<>();
+        for (CurrencyCode code : byNumeric) {
+            if (code != null) {
+                known.add(code);
+            }
+        }
+        this.all = Collections.unmodifiableList(known);
+    }
+
+    /**
+     * Resolves a numeric ISO 4217 code with a single array access.
+     *
+     * @param numericCode the numeric code, e.g. 840
+     * @return the currency, or null if the code is unknown
+     */
+    public CurrencyCode byNumeric(int numericCode) {
+        return numericCode >= 0 && numericCode < CODE_SPACE ? byNumeric[numericCode] : null;
+    }
+
+    /**
+     * Resolves an alphabetic ISO 4217 code, case-insensitively.
+     *
+     * @param alphaCode the alphabetic code, e.g. "USD"
+     * @return the currency, or null if the code is unknown
+     */
+    public CurrencyCode byAlpha(String alphaCode) {
+        if (alphaCode == null) {
+            return null;
+        }
+        CurrencyCode code = byAlpha.get(alphaCode);
+        return code != null ? code : byAlpha.get(alphaCode.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Resolves an alphabetic code that must be known.
+     *
+     * @param alphaCode the alphabetic code, e.g. "USD"
+     * @return the currency
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public CurrencyCode require(String alphaCode) {
+        CurrencyCode code = byAlpha(alphaCode);
+        if (code == null) {
+            throw new IllegalArgumentException("Unsupported currency: " + alphaCode);
+        }
+        return code;
+    }
+
+    /**
+     * Resolves a list of alphabetic codes that must all be known.
+     *
+     * @param alphaCodes the alphabetic codes
+     * @return the currencies in the given order
+     * @throws IllegalArgumentException if a code is unknown
+     */
+    public List<CurrencyCode> requireAll(Collection<String> alphaCodes) {
+        List<CurrencyCode> codes = new ArrayList<>(alphaCodes.size());
+        for (String alphaCode : alphaCodes) {
+            codes.add(require(alphaCode));
+        }
+        return codes;
+    }
+
+    /**
+     * @param alphaCode the alphabetic code
+     * @return true if the code is a known ISO 4217 currency
+     */
+    public boolean isSupported(String alphaCode) {
+        return byAlpha(alphaCode) != null;
+    }
+
+    /**
+     * @return all known currencies ordered by numeric code
+     */
+    public List<CurrencyCode> getAll() {
+        return all;
+    }
+}
@@ -0,0 +1,267 @@
+package task.privatbank.currency;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic for exchange rates.
+ * <p>
+ * A rate is a long holding the rate multiplied by 10^{@value #SCALE}, e.g. 41.25 is stored
+ * as 412500, in the entities, the DTOs and as BIGINT in the database. Sums, averages and
+ * comparisons are plain integer operations and exact; decimal text is only parsed and
+ * written at the edges (provider payloads, JSON responses, exports).
+ * <p>
+ * Percent changes are expressed in basis points (1/100 of a percent), e.g. 185 for 1.85%.
+ */
+public final class FixedPoint {
+
+    /** Number of decimal places kept. */
+    public static final int SCALE = 4;
+
+    /** The rate 1.0. */
+    public static final long ONE = 10_000L;
+
+    /** Basis points per unit, i.e. per 100%. */
+    public static final long BASIS_POINTS = 10_000L;
+
+    /** Number of decimal places of a percentage given in basis points. */
+    private static final int PERCENT_SCALE = 2;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Parses a plain decimal number, e.g. "41.2500" or "-0.5", rounding half up to SCALE places.
+     * Exponent notation is accepted but takes the slower BigDecimal path.
+     *
+     * @param text the decimal text
+     * @return the scaled value
+     * @throws NumberFormatException if the text is not a decimal number
+     * @throws ArithmeticException   if the value does not fit a long
+     */
+    public static long parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Parses a plain decimal number from a character range without allocating,
+     * see {@link #parse(String)}. Used on Jackson's token buffer by the streaming parsers.
+     *
+     * @param chars  the buffer
+     * @param offset the first character of the number
+     * @param length the length of the number
+     * @return the scaled value
+     * @throws NumberFormatException if the text is not a decimal number
+     * @throws ArithmeticException   if the value does not fit a long
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i++] == '-';
+        }
+
+        long value = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        boolean digits = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (fractionDigits < SCALE) {
+                    value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (fractionDigits == SCALE) {
+                    // the first dropped digit decides the rounding
+                    roundUp = c >= '5';
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c == 'e' || c == 'E') {
+                return parseExact(new String(chars, offset, length));
+            } else {
+                throw new NumberFormatException("Not a decimal number: " + new String(chars, offset, length));
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("Not a decimal number: " + new String(chars, offset, length));
+        }
+
+        for (int scale = Math.max(fractionDigits, 0); scale < SCALE; scale++) {
+            value = Math.multiplyExact(value, 10);
+        }
+        if (roundUp) {
+            value = Math.addExact(value, 1);
+        }
+        return negative ? -value : value;
+    }
+
+    private static long parseExact(String text) {
+        return of(new BigDecimal(text));
+    }
+
+    /**
+     * Converts a decimal, rounding half up to SCALE places.
+     *
+     * @param value the decimal
+     * @return the scaled value
+     * @throws ArithmeticException if the value does not fit a long
+     */
+    public static long of(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts a binary floating-point value, rounding half up to SCALE places.
+     * Only meant for the edges that still deliver doubles.
+     *
+     * @param value the value
+     * @return the scaled value
+     */
+    public static long of(double value) {
+        return Math.round(value * ONE);
+    }
+
+    /**
+     * Returns the value as a decimal with exactly SCALE places.
+     */
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    /**
+     * Returns the value as a double, for the edges that need one.
+     */
+    public static double toDouble(long value) {
+        return (double) value / ONE;
+    }
+
+    /**
+     * Averages scaled values, rounding half away from zero.
+     *
+     * @param sum   the sum of the values
+     * @param count the number of values, positive
+     * @return the scaled average
+     */
+    public static long average(long sum, int count) {
+        return divideRounded(sum, count);
+    }
+
+    /**
+     * Returns the relative change from previous to current in basis points,
+     * rounding half away from zero.
+     *
+     * @param current  the later scaled rate
+     * @param previous the earlier scaled rate, positive
+     * @return the change, e.g. 185 for +1.85%
+     */
+    public static long changeBasisPoints(long current, long previous) {
+        return divideRounded(Math.multiplyExact(current - previous, BASIS_POINTS), previous);
+    }
+
+    private static long divideRounded(long dividend, long divisor) {
+        long half = divisor / 2;
+        return dividend >= 0 ? (dividend + half) / divisor : (dividend - half) / divisor;
+    }
+
+    /**
+     * Formats a scaled rate without trailing zeros but with at least one decimal,
+     * e.g. 412500 as "41.25" and 410000 as "41.0", the way a double would print.
+     */
+    public static String format(long value) {
+        return format(value, SCALE);
+    }
+
+    /**
+     * Formats a change in basis points as a percentage, e.g. 185 as "1.85" and -25 as "-0.25".
+     */
+    public static String formatBasisPoints(long basisPoints) {
+        return format(basisPoints, PERCENT_SCALE);
+    }
+
+    private static String format(long value, int scale) {
+        StringBuilder text = new StringBuilder(24);
+        if (value < 0) {
+            text.append('-');
+        }
+        String digits = Long.toString(Math.abs(value));
+        int integerDigits = digits.length() - scale;
+        if (integerDigits > 0) {
+            text.append(digits, 0, integerDigits);
+        } else {
+            text.append('0');
+        }
+        text.append('.');
+        int fractionStart = text.length();
+        for (int i = integerDigits; i < 0; i++) {
+            text.append('0');
+        }
+        text.append(digits, Math.max(integerDigits, 0), digits.length());
+        int last = text.length();
+        while (last > fractionStart + 1 && text.charAt(last - 1) == '0') {
+            last--;
+        }
+        text.setLength(last);
+        return text.toString();
+    }
+
+    /**
+     * Writes a scaled rate as a JSON number, e.g. 41.25.
+     */
+    public static class Serializer extends StdScalarSerializer<Long> {
+
+        public Serializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(format(value));
+        }
+    }
+
+    /**
+     * Reads a JSON number or numeric string, e.g. 41.25 or "41.25000", as a scaled rate.
+     * The token text is parsed directly, so no double is ever involved.
+     */
+    public static class Deserializer extends StdScalarDeserializer<Long> {
+
+        public Deserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                    && token != JsonToken.VALUE_STRING) {
+                return (Long) context.handleUnexpectedToken(Long.class, parser);
+            }
+            try {
+                return parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            } catch (NumberFormatException | ArithmeticException e) {
+                return (Long) context.handleWeirdStringValue(Long.class, parser.getText(), e.getMessage());
+            }
+        }
+
+        /** A missing rate reads as zero, like a missing double did, and is rejected by the averaging. */
+        @Override
+        public Long getNullValue(DeserializationContext context) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package task.privatbank.currency;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a long holding a {@link FixedPoint} rate, so Jackson reads and writes it
+ * as a decimal number (41.25) instead of the scaled integer (412500).
+ */
+@Documented
+@JacksonAnnotationsInside
+@JsonSerialize(using = FixedPoint.Serializer.class)
+@JsonDeserialize(using = FixedPoint.Deserializer.class)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FixedPointRate {
+}
@@ -0,0 +1,27 @@
+package task.privatbank.currency;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Validates that a String is an ISO 4217 alphabetic code known to the CurrencyRegistry.
+ * Null values are considered valid; combine with required request parameters.
+ */
+@Documented
+@Constraint(validatedBy = SupportedCurrencyValidator.class)
+@Target({ElementType.PARAMETER, ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SupportedCurrency {
+
+    String message() default "Currency must be a supported ISO 4217 code";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,19 @@
+package task.privatbank.currency;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Validator of {@link SupportedCurrency}, backed by the CurrencyRegistry bean.
+ */
+@RequiredArgsConstructor
+public class SupportedCurrencyValidator implements ConstraintValidator<SupportedCurrency, String> {
+
+    private final CurrencyRegistry currencyRegistry;
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || currencyRegistry.isSupported(value);
+    }
+}
@@ -0,0 +1,31 @@
+package task.privatbank.dto;
+
+import task.privatbank.currency.FixedPointRate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of an AverageRate, returned by the repository read queries.
+ * <p>
+ * Built by a JPQL constructor expression, so Hibernate neither registers it in the
+ * persistence context nor keeps a dirty-checking snapshot; being immutable, it is
+ * also safe to share through the Caffeine caches. Serializes to the same JSON as the entity.
+ *
+ * @param id        the primary key
+ * @param currency  the currency code, e.g. "USD"
+ * @param buyRate   the average buy rate, scaled by FixedPoint
+ * @param sellRate  the average sell rate, scaled by FixedPoint
+ * @param timestamp the start of the first aggregation bucket holding the rate
+ * @param validTo   the start of the last aggregation bucket holding the rate, inclusive
+ */
+public record AverageRateView(Long id, String currency,
+                              @FixedPointRate long buyRate, @FixedPointRate long sellRate,
+                              LocalDateTime timestamp, LocalDateTime validTo) {
+
+    /**
+     * Creates the view of a rate observed in a single bucket, e.g. a tick.
+     */
+    public AverageRateView(Long id, String currency, long buyRate, long sellRate, LocalDateTime timestamp) {
+        this(id, currency, buyRate, sellRate, timestamp, timestamp);
+    }
+}
@@ -1,6 +1,9 @@
 package task.privatbank.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import task.privatbank.currency.CurrencyCode;
+import task.privatbank.currency.FixedPointRate;
 
 /**
  * Data Transfer Object (DTO) for capturing the currency exchange rate data
@@ -9,8 +12,9 @@ import lombok.Data;
  * Fields:
  * - ccy:      The currency code (e.g., USD, EUR).
  * - base_ccy: The base currency code (usually UAH).
- * - buy:      The buy rate.
- * - sale:     The sale (sell) rate.
+ * - buy:      The buy rate, scaled by FixedPoint.
+ * - sale:     The sale (sell) rate, scaled by FixedPoint.
+ * - currency: The resolved registry currency of ccy; set by the provider, not part of the payload.
  */
 @Data
 public class CurrencyRateDTO {
@@ -21,9 +25,15 @@ public class CurrencyRateDTO {
     /** The base currency code, e.g. "UAH". */
     private String base_ccy;
 
-    /** The buy rate for the currency. */
-    private double buy;
+    /** The buy rate for the currency; PrivatBank sends it as a decimal string. */
+    @FixedPointRate
+    private long buy;
 
-    /** The sell rate for the currency. */
-    private double sale;
+    /** The sell rate for the currency; PrivatBank sends it as a decimal string. */
+    @FixedPointRate
+    private long sale;
+
+    /** The interned currency of ccy, resolved once at ingestion by the CurrencyRegistry. */
+    @JsonIgnore
+    private CurrencyCode currency;
 }
\ No newline at end of file
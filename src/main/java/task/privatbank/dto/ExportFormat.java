@@ -0,0 +1,29 @@
+package task.privatbank.dto;
+
+/**
+ * Output format of the rate history export.
+ */
+public enum ExportFormat {
+
+    /** Comma-separated values with a header row. */
+    CSV("text/csv", "csv"),
+
+    /** One JSON object per line. */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
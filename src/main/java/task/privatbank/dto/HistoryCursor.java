@@ -0,0 +1,46 @@
+package task.privatbank.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in the rate history: the (timestamp, id) of the last row of a page.
+ * The next page continues strictly after it in (timestamp DESC, id DESC) order.
+ * <p>
+ * Clients receive it as an opaque URL-safe token.
+ *
+ * @param timestamp the timestamp of the last returned row
+ * @param id        the id of the last returned row
+ */
+public record HistoryCursor(LocalDateTime timestamp, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * @return the opaque token of this cursor
+     */
+    public String encode() {
+        String raw = timestamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token the opaque token
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed history cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package task.privatbank.dto;
+
+import java.util.List;
+
+/**
+ * One page of the rate history, newest first.
+ *
+ * @param items      the rates of this page
+ * @param nextCursor the token of the next page, or null on the last page
+ */
+public record HistoryPage(List<AverageRateView> items, String nextCursor) {
+}
@@ -1,6 +1,7 @@
 package task.privatbank.dto;
 
 import lombok.Data;
+import task.privatbank.currency.FixedPointRate;
 
 /**
  * Data Transfer Object (DTO) for capturing the currency exchange rate data
@@ -11,6 +12,8 @@ import lombok.Data;
  * - currencyCodeB: currency code B (e.g., 980 for UAH).
  * - rateBuy:       The buy rate.
  * - rateSell:      The sell rate.
+ * - rateCross:     The cross rate, sent instead of buy/sell for most currencies.
+ * Rates are scaled by FixedPoint.
  */
 @Data
 public class MonoBankRateDTO {
@@ -22,8 +25,14 @@ public class MonoBankRateDTO {
     private int currencyCodeB;
 
     /** The buy rate for the currency. */
-    private double rateBuy;
+    @FixedPointRate
+    private long rateBuy;
 
     /** The sell rate for the currency. */
-    private double rateSell;
+    @FixedPointRate
+    private long rateSell;
+
+    /** The cross rate; MonoBank sends only this one for currencies it does not trade itself. */
+    @FixedPointRate
+    private long rateCross;
 }
\ No newline at end of file
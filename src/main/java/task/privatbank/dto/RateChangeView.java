@@ -0,0 +1,22 @@
+package task.privatbank.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a change between two consecutive average buy rates of a currency,
+ * computed in SQL with LAG() (see AverageRateRepository).
+ * <p>
+ * Fields:
+ * - currency:  The currency code (e.g., "USD", "EUR").
+ * - timestamp: The timestamp of the later average.
+ * - changeBps: The change of the buy rate in basis points (1/100 of a percent),
+ *              see FixedPoint.formatBasisPoints.
+ */
+public interface RateChangeView {
+
+    String getCurrency();
+
+    LocalDateTime getTimestamp();
+
+    long getChangeBps();
+}
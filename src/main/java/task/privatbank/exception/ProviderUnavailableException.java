@@ -0,0 +1,14 @@
+package task.privatbank.exception;
+
+/**
+ * Thrown when a rate provider cannot be called in the current cycle,
+ * e.g. because its rate limit would delay the call beyond the cycle deadline.
+ * <p>
+ * The ingestion engine leaves such a provider out of the cycle.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    public ProviderUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,7 @@ package task.privatbank.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import task.privatbank.currency.FixedPointRate;
 
 import java.time.LocalDateTime;
 
@@ -12,31 +13,56 @@ import java.time.LocalDateTime;
  * - currency:  The currency code (e.g., "USD", "EUR").
  * - buyRate:   The average buy rate.
  * - sellRate:  The average sell rate.
- * - timestamp: The date/time of record creation.
+ * - timestamp: The start of the aggregation bucket; unique per currency.
+ * - validTo:   The start of the last bucket with the same rate (run-length rows).
  */
 @Entity
 @Table(name = "average_rates")
 @Data
 public class AverageRate {
 
-    /** The primary key (auto-generated). */
+    /** Ids reserved per sequence call; must match the sequence INCREMENT BY. */
+    public static final int ALLOCATION_SIZE = 50;
+
+    /**
+     * The primary key, drawn from a pooled sequence: one sequence call reserves
+     * ALLOCATION_SIZE ids, so inserts need no returned key and can be JDBC-batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "average_rates_seq")
+    @SequenceGenerator(name = "average_rates_seq", sequenceName = "average_rates_seq", allocationSize = ALLOCATION_SIZE)
     private Long id;
 
     /** The currency code, e.g., "USD" or "EUR". */
     @Column(nullable = false)
     private String currency;
 
-    /** The computed average buy rate. */
+    /** The computed average buy rate, scaled by FixedPoint. */
     @Column(nullable = false)
-    private double buyRate;
+    @FixedPointRate
+    private long buyRate;
 
-    /** The computed average sell rate. */
+    /** The computed average sell rate, scaled by FixedPoint. */
     @Column(nullable = false)
-    private double sellRate;
+    @FixedPointRate
+    private long sellRate;
 
-    /** The timestamp when this record was created. */
+    /** The start of the aggregation bucket; (currency, timestamp) is unique, see db/migration/V7. */
     @Column(nullable = false)
     private LocalDateTime timestamp;
+
+    /**
+     * The start of the last aggregation bucket holding this rate, inclusive; equals the timestamp
+     * unless "exchange.storage.run-length" extended the row, see db/migration/V8.
+     */
+    @Column(nullable = false)
+    private LocalDateTime validTo;
+
+    /** A row written for a single bucket is valid for that bucket only. */
+    @PrePersist
+    void defaultValidTo() {
+        if (validTo == null) {
+            validTo = timestamp;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package task.privatbank.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket width of a RateCandle.
+ */
+public enum CandleResolution {
+
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    CandleResolution(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * @param timestamp a tick timestamp
+     * @return the start of the bucket containing the timestamp
+     */
+    public LocalDateTime bucketStart(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    /**
+     * @return the width of one bucket
+     */
+    public Duration getDuration() {
+        return unit.getDuration();
+    }
+}
@@ -2,6 +2,7 @@ package task.privatbank.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import task.privatbank.currency.FixedPointRate;
 
 import java.time.LocalDateTime;
 
@@ -20,22 +21,31 @@ import java.time.LocalDateTime;
 @Data
 public class CurrencyRate {
 
-    /** The primary key (auto-generated). */
+    /** Ids reserved per sequence call; must match the sequence INCREMENT BY. */
+    public static final int ALLOCATION_SIZE = 50;
+
+    /**
+     * The primary key, drawn from a pooled sequence: one sequence call reserves
+     * ALLOCATION_SIZE ids, so inserts need no returned key and can be JDBC-batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "currency_rates_seq")
+    @SequenceGenerator(name = "currency_rates_seq", sequenceName = "currency_rates_seq", allocationSize = ALLOCATION_SIZE)
     private Long id;
 
     /** The currency code, e.g., "USD" or "EUR". */
     @Column(nullable = false)
     private String currency;
 
-    /** The buy rate from the source. */
+    /** The buy rate from the source, scaled by FixedPoint. */
     @Column(nullable = false)
-    private double buyRate;
+    @FixedPointRate
+    private long buyRate;
 
-    /** The sell rate from the source. */
+    /** The sell rate from the source, scaled by FixedPoint. */
     @Column(nullable = false)
-    private double sellRate;
+    @FixedPointRate
+    private long sellRate;
 
     /** The timestamp when this record was created. */
     @Column(nullable = false)
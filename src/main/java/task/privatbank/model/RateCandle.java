@@ -0,0 +1,88 @@
+package task.privatbank.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import task.privatbank.currency.FixedPointRate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing the open/high/low/close rollup of the average rates
+ * of one currency within one time bucket.
+ * <p>
+ * Candles are maintained incrementally by an upsert per stored average (see CandleService),
+ * so reading a range costs one row per bucket regardless of how many averages were stored.
+ * <p>
+ * Fields:
+ * - currency:    The currency code (e.g., "USD", "EUR").
+ * - resolution:  The bucket width (MINUTE, HOUR, DAY).
+ * - bucketStart: The start of the bucket.
+ * - openBuy, highBuy, lowBuy, closeBuy:     OHLC of the average buy rate.
+ * - openSell, highSell, lowSell, closeSell: OHLC of the average sell rate.
+ *   Rates are scaled by FixedPoint.
+ * - openAt, closeAt: Timestamps of the first and the last average in the bucket.
+ * - tickCount:   The number of averages folded into the candle.
+ */
+@Entity
+@Table(name = "rate_candles")
+@IdClass(RateCandleId.class)
+@Data
+public class RateCandle {
+
+    /** The currency code, e.g., "USD" or "EUR". */
+    @Id
+    private String currency;
+
+    /** The bucket width. */
+    @Id
+    @Enumerated(EnumType.STRING)
+    private CandleResolution resolution;
+
+    /** The start of the bucket. */
+    @Id
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    @FixedPointRate
+    private long openBuy;
+
+    @Column(nullable = false)
+    @FixedPointRate
+    private long highBuy;
+
+    @Column(nullable = false)
+    @FixedPointRate
+    private long lowBuy;
+
+    @Column(nullable = false)
+    @FixedPointRate
+    private long closeBuy;
+
+    @Column(nullable = false)
+    @FixedPointRate
+    private long openSell;
+
+    @Column(nullable = false)
+    @FixedPointRate
+    private long highSell;
+
+    @Column(nullable = false)
+    @FixedPointRate
+    private long lowSell;
+
+    @Column(nullable = false)
+    @FixedPointRate
+    private long closeSell;
+
+    /** The timestamp of the average that opened the bucket. */
+    @Column(nullable = false)
+    private LocalDateTime openAt;
+
+    /** The timestamp of the average that closed the bucket. */
+    @Column(nullable = false)
+    private LocalDateTime closeAt;
+
+    /** The number of averages folded into the candle. */
+    @Column(nullable = false)
+    private long tickCount;
+}
@@ -0,0 +1,23 @@
+package task.privatbank.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Composite primary key of {@link RateCandle}: one candle per currency, resolution and bucket.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateCandleId implements Serializable {
+
+    private String currency;
+
+    private CandleResolution resolution;
+
+    private LocalDateTime bucketStart;
+}
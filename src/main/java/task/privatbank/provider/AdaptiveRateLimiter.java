@@ -0,0 +1,175 @@
+package task.privatbank.provider;
+
+import reactor.core.publisher.Mono;
+import task.privatbank.exception.ProviderUnavailableException;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limiter that learns the request rate a provider allows.
+ * <p>
+ * Calls are scheduled rather than rejected: acquiring a permit returns the delay
+ * after which the call may be sent. The refill interval adapts to the provider:
+ * - every successful call shortens the interval by the increase factor (probing for a higher rate);
+ * - every 429 lengthens it by the decrease factor, empties the bucket and honors Retry-After.
+ * The interval always stays within [minInterval, maxInterval].
+ * <p>
+ * Thread-safe; all state changes happen under the instance monitor.
+ */
+public class AdaptiveRateLimiter {
+
+    private final String name;
+    private final int burst;
+    private final double minIntervalNanos;
+    private final double maxIntervalNanos;
+    private final double increaseFactor;
+    private final double decreaseFactor;
+    private final LongSupplier nanoClock;
+
+    /** Current time between two permits. */
+    private double intervalNanos;
+
+    /** Available permits; negative when permits are reserved ahead. */
+    private double tokens;
+
+    /** Time from which permits accrue; in the future while the provider asked us to back off. */
+    private long refillFrom;
+
+    private long throttledCount;
+    private long rejectedCount;
+
+    public AdaptiveRateLimiter(String name, int burst, Duration initialInterval, Duration minInterval,
+                               Duration maxInterval, double increaseFactor, double decreaseFactor) {
+        this(name, burst, initialInterval, minInterval, maxInterval, increaseFactor, decreaseFactor, System::nanoTime);
+    }
+
+    AdaptiveRateLimiter(String name, int burst, Duration initialInterval, Duration minInterval,
+                        Duration maxInterval, double increaseFactor, double decreaseFactor, LongSupplier nanoClock) {
+        if (burst < 1 || increaseFactor < 1.0 || decreaseFactor <= 0.0 || decreaseFactor > 1.0
+                || minInterval.compareTo(maxInterval) > 0) {
+            throw new IllegalArgumentException("Invalid rate limit settings for provider " + name);
+        }
+        this.name = name;
+        this.burst = burst;
+        this.minIntervalNanos = minInterval.toNanos();
+        this.maxIntervalNanos = maxInterval.toNanos();
+        this.increaseFactor = increaseFactor;
+        this.decreaseFactor = decreaseFactor;
+        this.nanoClock = nanoClock;
+        this.intervalNanos = Math.min(maxIntervalNanos, Math.max(minIntervalNanos, initialInterval.toNanos()));
+        this.tokens = burst;
+        this.refillFrom = nanoClock.getAsLong();
+    }
+
+    /**
+     * Waits for a permit without blocking a thread.
+     *
+     * @param maxWait the longest acceptable delay, usually the cycle deadline
+     * @return a Mono completing when the call may be sent, or failing with
+     *         ProviderUnavailableException if the delay would exceed maxWait
+     */
+    public Mono<Void> acquire(Duration maxWait) {
+        return Mono.defer(() -> {
+            long waitNanos = reserve(maxWait.toNanos());
+            if (waitNanos < 0) {
+                return Mono.error(new ProviderUnavailableException(
+                        "Rate limit of provider " + name + " does not allow a call within " + maxWait));
+            }
+            return waitNanos == 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(waitNanos)).then();
+        });
+    }
+
+    /**
+     * Takes a permit only if one is available right now.
+     *
+     * @return true if the permit was taken
+     */
+    public synchronized boolean tryAcquire() {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        if (now < refillFrom || tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    /**
+     * Reserves a permit and returns the delay until it becomes available.
+     *
+     * @param maxWaitNanos the longest acceptable delay
+     * @return the delay in nanoseconds, or -1 if it would exceed maxWaitNanos (nothing is reserved)
+     */
+    synchronized long reserve(long maxWaitNanos) {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        long start = Math.max(now, refillFrom);
+        double deficit = 1.0 - tokens;
+        long waitNanos = (start - now) + (deficit > 0 ? (long) Math.ceil(deficit * intervalNanos) : 0);
+        if (waitNanos > maxWaitNanos) {
+            rejectedCount++;
+            return -1;
+        }
+        tokens -= 1.0;
+        return waitNanos;
+    }
+
+    /**
+     * Records a successful call and probes for a slightly higher rate.
+     */
+    public synchronized void onSuccess() {
+        refill(nanoClock.getAsLong());
+        intervalNanos = Math.max(minIntervalNanos, intervalNanos / increaseFactor);
+    }
+
+    /**
+     * Records a 429 response: backs off to a lower rate and pauses the bucket.
+     *
+     * @param retryAfter the delay requested by the provider, or null if none was given
+     */
+    public synchronized void onThrottled(Duration retryAfter) {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        throttledCount++;
+        intervalNanos = Math.min(maxIntervalNanos, intervalNanos / decreaseFactor);
+        tokens = Math.min(tokens, 0.0);
+        if (retryAfter != null) {
+            refillFrom = Math.max(refillFrom, now + retryAfter.toNanos());
+        }
+    }
+
+    private void refill(long now) {
+        if (now > refillFrom) {
+            tokens = Math.min(burst, tokens + (now - refillFrom) / intervalNanos);
+            refillFrom = now;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the currently learned number of permits per second
+     */
+    public synchronized double getRate() {
+        return 1_000_000_000.0 / intervalNanos;
+    }
+
+    /**
+     * @return permits available right now; negative when calls are queued ahead
+     */
+    public synchronized double getAvailableTokens() {
+        refill(nanoClock.getAsLong());
+        return tokens;
+    }
+
+    public synchronized long getThrottledCount() {
+        return throttledCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+}
@@ -0,0 +1,185 @@
+package task.privatbank.provider;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker guarding the calls to a single provider.
+ * <p>
+ * The outcomes of the last windowSize calls are kept in a ring buffer. Once at least
+ * minimumCalls were recorded, the breaker opens when either the failure rate or the
+ * slow call rate (calls longer than slowCallDuration) reaches its threshold.
+ * <p>
+ * States:
+ * - CLOSED:    calls pass through and are recorded.
+ * - OPEN:      calls are refused until openDuration has elapsed.
+ * - HALF_OPEN: a single probe call is let through; a fast success closes the breaker,
+ *              anything else opens it again.
+ * <p>
+ * Thread-safe; all state changes happen under the instance monitor.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    /** Outcome ring buffer: bit 0 = failed, bit 1 = slow. */
+    private final byte[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                          int slowCallRateThreshold, Duration slowCallDuration, Duration openDuration) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold,
+                slowCallDuration, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                   int slowCallRateThreshold, Duration slowCallDuration, Duration openDuration,
+                   LongSupplier nanoClock) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Invalid circuit breaker window for provider " + name);
+        }
+        this.name = name;
+        this.outcomes = new byte[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Asks whether a call may be sent now. Moves an expired OPEN breaker to HALF_OPEN.
+     *
+     * @return true if the call may be sent; the caller must then report its outcome
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) {
+                    yield false;
+                }
+                probeInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * Returns a permission that was granted but not used for a call.
+     */
+    public synchronized void releasePermission() {
+        probeInFlight = false;
+    }
+
+    /**
+     * Records a completed call.
+     *
+     * @param durationNanos the call duration
+     */
+    public synchronized void onSuccess(long durationNanos) {
+        record(false, durationNanos > slowCallNanos);
+    }
+
+    /**
+     * Records a failed call (error, timeout or cancellation).
+     *
+     * @param durationNanos the call duration
+     */
+    public synchronized void onError(long durationNanos) {
+        record(true, durationNanos > slowCallNanos);
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            if (failed || slow) {
+                open();
+            } else {
+                state = State.CLOSED;
+                reset();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // a call started before the breaker opened; its outcome no longer matters
+            return;
+        }
+
+        if (recorded == outcomes.length) {
+            byte evicted = outcomes[next];
+            failures -= evicted & 1;
+            slowCalls -= (evicted >> 1) & 1;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        next = (next + 1) % outcomes.length;
+        failures += failed ? 1 : 0;
+        slowCalls += slow ? 1 : 0;
+
+        if (recorded >= minimumCalls
+                && (failures * 100 >= failureRateThreshold * recorded
+                || slowCalls * 100 >= slowCallRateThreshold * recorded)) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        reset();
+    }
+
+    private void reset() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the failure rate in percent over the current window
+     */
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0.0 : failures * 100.0 / recorded;
+    }
+
+    /**
+     * @return the slow call rate in percent over the current window
+     */
+    public synchronized double getSlowCallRate() {
+        return recorded == 0 ? 0.0 : slowCalls * 100.0 / recorded;
+    }
+}
@@ -0,0 +1,63 @@
+package task.privatbank.provider;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import task.privatbank.config.ExchangeProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one CircuitBreaker per provider, created lazily from
+ * "exchange.providers.&lt;name&gt;.circuit-breaker.*", and publishes its state as metrics:
+ * - exchange.provider.circuit.state:          0 = closed, 1 = half-open, 2 = open
+ * - exchange.provider.circuit.failure_rate:   failure rate in percent over the window
+ * - exchange.provider.circuit.slow_call_rate: slow call rate in percent over the window
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CircuitBreakerRegistry {
+
+    private final ExchangeProperties exchangeProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the circuit breaker of the given provider, creating it on first use.
+     *
+     * @param provider the provider name
+     * @return the provider's circuit breaker
+     */
+    public CircuitBreaker forProvider(String provider) {
+        return breakers.computeIfAbsent(provider, this::create);
+    }
+
+    private CircuitBreaker create(String provider) {
+        ExchangeProperties.CircuitBreaker settings = exchangeProperties.getProvider(provider).getCircuitBreaker();
+        CircuitBreaker breaker = new CircuitBreaker(provider, settings.getWindowSize(), settings.getMinimumCalls(),
+                settings.getFailureRateThreshold(), settings.getSlowCallRateThreshold(),
+                settings.getSlowCallDuration(), settings.getOpenDuration());
+
+        Gauge.builder("exchange.provider.circuit.state", breaker, b -> b.getState().ordinal())
+                .tag("provider", provider)
+                .description("Circuit breaker state: 0 = closed, 1 = half-open, 2 = open")
+                .register(meterRegistry);
+        Gauge.builder("exchange.provider.circuit.failure_rate", breaker, CircuitBreaker::getFailureRate)
+                .tag("provider", provider)
+                .description("Failure rate in percent over the sliding window")
+                .register(meterRegistry);
+        Gauge.builder("exchange.provider.circuit.slow_call_rate", breaker, CircuitBreaker::getSlowCallRate)
+                .tag("provider", provider)
+                .description("Slow call rate in percent over the sliding window")
+                .register(meterRegistry);
+
+        log.info("Circuit breaker created for provider={}: window={}, failureRateThreshold={}%, openDuration={}",
+                provider, settings.getWindowSize(), settings.getFailureRateThreshold(), settings.getOpenDuration());
+        return breaker;
+    }
+}
@@ -0,0 +1,54 @@
+package task.privatbank.provider;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the most recent calls to a provider and answers
+ * percentile queries over them.
+ * <p>
+ * Thread-safe; all state changes happen under the instance monitor.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int recorded;
+
+    public LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Records the latency of a completed call.
+     *
+     * @param nanos the call latency in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        recorded = Math.min(recorded + 1, samples.length);
+    }
+
+    /**
+     * @return the number of latencies currently held
+     */
+    public synchronized int size() {
+        return recorded;
+    }
+
+    /**
+     * Returns the given percentile of the recorded latencies (nearest-rank).
+     *
+     * @param percentile a value in (0, 100]
+     * @return the latency in nanoseconds, or -1 if nothing was recorded yet
+     */
+    public synchronized long percentile(double percentile) {
+        if (recorded == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, recorded);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * recorded);
+        return sorted[Math.min(recorded, Math.max(rank, 1)) - 1];
+    }
+}
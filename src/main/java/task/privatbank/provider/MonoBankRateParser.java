@@ -0,0 +1,255 @@
+package task.privatbank.provider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import task.privatbank.currency.FixedPoint;
+import task.privatbank.dto.MonoBankRateDTO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Streaming decoder for the MonoBank /bank/currency payload.
+ * <p>
+ * Reads the Jackson token stream of the response as the chunks arrive and only
+ * materializes MonoBankRateDTO objects for the tracked currency pairs; every other
+ * entry (the payload holds ~150 of them) is skipped at token level without
+ * allocating objects or parsing its rates.
+ * <p>
+ * Tracked pairs are given as "currencyCodeA:currencyCodeB" (e.g., "840:980" for USD/UAH),
+ * or as "*:currencyCodeB" to keep every currency quoted against currencyCodeB.
+ * A parser is immutable and thread-safe; each response is decoded by its own {@link Session}.
+ */
+public class MonoBankRateParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int FIELD_OTHER = 0;
+    private static final int FIELD_CODE_A = 1;
+    private static final int FIELD_CODE_B = 2;
+    private static final int FIELD_RATE_BUY = 3;
+    private static final int FIELD_RATE_SELL = 4;
+    private static final int FIELD_RATE_CROSS = 5;
+
+    /** Wildcard code A: "*:980" tracks every currency quoted against UAH. */
+    private static final String ANY = "*";
+
+    /** Sorted pair keys (codeA * 1000 + codeB) of the tracked pairs. */
+    private final int[] trackedPairs;
+
+    /** Sorted codes B whose every pair is tracked. */
+    private final int[] trackedBases;
+
+    public MonoBankRateParser(Collection<String> trackedPairs) {
+        this.trackedPairs = trackedPairs.stream()
+                .filter(pair -> !isWildcard(pair))
+                .mapToInt(MonoBankRateParser::parsePair)
+                .sorted()
+                .distinct()
+                .toArray();
+        this.trackedBases = trackedPairs.stream()
+                .filter(MonoBankRateParser::isWildcard)
+                .mapToInt(pair -> parseCode(pair.substring(pair.indexOf(':') + 1), pair))
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Decodes a complete payload held in memory.
+     *
+     * @param payload the raw response body
+     * @return the tracked rates in payload order
+     * @throws IOException if the payload is not valid JSON
+     */
+    public List<MonoBankRateDTO> parse(byte[] payload) throws IOException {
+        Session session = newSession();
+        session.feed(ByteBuffer.wrap(payload));
+        return session.finish();
+    }
+
+    /**
+     * Starts decoding a new response whose body is fed chunk by chunk.
+     *
+     * @return a new decoding session
+     * @throws IOException if the underlying parser cannot be created
+     */
+    public Session newSession() throws IOException {
+        return new Session(JSON_FACTORY.createNonBlockingByteBufferParser());
+    }
+
+    /**
+     * Returns whether the pair is tracked, using binary searches over the sorted keys.
+     */
+    boolean isTracked(int codeA, int codeB) {
+        return Arrays.binarySearch(trackedBases, codeB) >= 0
+                || Arrays.binarySearch(trackedPairs, pairKey(codeA, codeB)) >= 0;
+    }
+
+    private static int pairKey(int codeA, int codeB) {
+        return codeA * 1000 + codeB;
+    }
+
+    private static int parsePair(String pair) {
+        String[] codes = pair.trim().split(":");
+        if (codes.length != 2) {
+            throw new IllegalArgumentException("Tracked pair must look like '840:980', got '" + pair + "'");
+        }
+        return pairKey(parseCode(codes[0], pair), parseCode(codes[1], pair));
+    }
+
+    private static int parseCode(String code, String pair) {
+        int value = Integer.parseInt(code.trim());
+        if (value < 0 || value > 999) {
+            throw new IllegalArgumentException("Currency codes must be 3-digit ISO 4217 numbers, got '" + pair + "'");
+        }
+        return value;
+    }
+
+    private static boolean isWildcard(String pair) {
+        return pair.trim().startsWith(ANY + ":");
+    }
+
+    /**
+     * Decoding state of a single response. Not thread-safe: chunks must be fed
+     * sequentially, which is what a reactive body publisher guarantees.
+     */
+    public final class Session {
+
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private final List<MonoBankRateDTO> rates = new ArrayList<>();
+
+        /** Nesting level of the current token; rate entries live at depth 2. */
+        private int depth;
+        private int field = FIELD_OTHER;
+
+        private int codeA;
+        private int codeB;
+        private long rateBuy;
+        private long rateSell;
+        private long rateCross;
+
+        private Session(JsonParser parser) {
+            this.parser = parser;
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        /**
+         * Feeds the next chunk of the body and decodes every complete token in it.
+         * The chunk is fully consumed when this method returns.
+         *
+         * @param chunk the next part of the response body
+         * @throws IOException if the payload is not valid JSON
+         */
+        public void feed(ByteBuffer chunk) throws IOException {
+            feeder.feedInput(chunk);
+            drain();
+        }
+
+        /**
+         * Signals the end of the body and returns the decoded tracked rates.
+         *
+         * @return the tracked rates in payload order
+         * @throws IOException if the payload is truncated or not valid JSON
+         */
+        public List<MonoBankRateDTO> finish() throws IOException {
+            feeder.endOfInput();
+            drain();
+            parser.close();
+            return rates;
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                switch (token) {
+                    case START_OBJECT -> {
+                        if (++depth == 2) {
+                            startEntry();
+                        }
+                    }
+                    case START_ARRAY -> depth++;
+                    case END_OBJECT -> {
+                        if (depth-- == 2) {
+                            completeEntry();
+                        }
+                    }
+                    case END_ARRAY -> depth--;
+                    case FIELD_NAME -> field = depth == 2 ? fieldOf(parser.currentName()) : FIELD_OTHER;
+                    case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                        if (depth == 2) {
+                            readNumber();
+                        }
+                    }
+                    default -> {
+                        // strings, booleans and nulls carry nothing we need
+                    }
+                }
+            }
+        }
+
+        private void startEntry() {
+            field = FIELD_OTHER;
+            codeA = -1;
+            codeB = -1;
+            rateBuy = 0;
+            rateSell = 0;
+            rateCross = 0;
+        }
+
+        private void completeEntry() {
+            if (codeA >= 0 && codeB >= 0 && isTracked(codeA, codeB)) {
+                MonoBankRateDTO rate = new MonoBankRateDTO();
+                rate.setCurrencyCodeA(codeA);
+                rate.setCurrencyCodeB(codeB);
+                rate.setRateBuy(rateBuy);
+                rate.setRateSell(rateSell);
+                rate.setRateCross(rateCross);
+                rates.add(rate);
+            }
+        }
+
+        private void readNumber() throws IOException {
+            switch (field) {
+                case FIELD_CODE_A -> codeA = parser.getIntValue();
+                case FIELD_CODE_B -> codeB = parser.getIntValue();
+                case FIELD_RATE_BUY -> rateBuy = readRate();
+                case FIELD_RATE_SELL -> rateSell = readRate();
+                case FIELD_RATE_CROSS -> rateCross = readRate();
+                default -> {
+                    // date and unknown fields are not needed
+                }
+            }
+        }
+
+        /**
+         * Parses a rate only if the entry may still be tracked. MonoBank sends the codes
+         * before the rates, so for untracked entries the number text is never converted.
+         * The text is parsed straight from the parser's buffer into a FixedPoint long.
+         */
+        private long readRate() throws IOException {
+            if (codeA >= 0 && codeB >= 0 && !isTracked(codeA, codeB)) {
+                return 0;
+            }
+            return FixedPoint.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+
+        private int fieldOf(String name) {
+            return switch (name) {
+                case "currencyCodeA" -> FIELD_CODE_A;
+                case "currencyCodeB" -> FIELD_CODE_B;
+                case "rateBuy" -> FIELD_RATE_BUY;
+                case "rateSell" -> FIELD_RATE_SELL;
+                case "rateCross" -> FIELD_RATE_CROSS;
+                default -> FIELD_OTHER;
+            };
+        }
+    }
+}
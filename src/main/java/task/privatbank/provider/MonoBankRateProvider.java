@@ -0,0 +1,136 @@
+package task.privatbank.provider;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.currency.CurrencyCode;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.dto.CurrencyRateDTO;
+import task.privatbank.dto.MonoBankRateDTO;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * RateProvider backed by the MonoBank public API.
+ * <p>
+ * The payload is decoded by MonoBankRateParser as it streams in, so only the
+ * configured tracked pairs (every currency quoted against UAH by default) are materialized.
+ * Numeric codes are resolved through the CurrencyRegistry; codes it does not know are dropped.
+ */
+@Component
+@ConditionalOnProperty(prefix = "exchange.providers.monobank", name = "enabled", matchIfMissing = true)
+@Slf4j
+public class MonoBankRateProvider implements RateProvider {
+
+    public static final String NAME = "monobank";
+
+    private static final String DEFAULT_URL = "https://api.monobank.ua/bank/currency";
+
+    private static final List<String> DEFAULT_TRACKED_PAIRS = List.of("*:" + CurrencyRegistry.UAH);
+
+    private final WebClient webClient;
+
+    private final String url;
+
+    private final MonoBankRateParser parser;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    public MonoBankRateProvider(WebClient providerWebClient, ExchangeProperties exchangeProperties,
+                                CurrencyRegistry currencyRegistry) {
+        this.webClient = providerWebClient;
+        this.currencyRegistry = currencyRegistry;
+        ExchangeProperties.Provider settings = exchangeProperties.getProvider(NAME);
+        this.url = Objects.requireNonNullElse(settings.getUrl(), DEFAULT_URL);
+        this.parser = new MonoBankRateParser(settings.getTrackedPairs().isEmpty()
+                ? DEFAULT_TRACKED_PAIRS
+                : settings.getTrackedPairs());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Calls MonoBank API to retrieve currency rates of the tracked pairs.
+     * Errors, including 429 Too Many Requests, are propagated: the call is paced by
+     * the provider's AdaptiveRateLimiter and the engine leaves MonoBank out of the cycle.
+     *
+     * @return a Mono emitting the list of CurrencyRateDTO objects
+     */
+    @Override
+    public Mono<List<CurrencyRateDTO>> fetchRates() {
+        log.debug("Fetching rates from MonoBank API...");
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .collect(this::newSession, this::feed)
+                .map(this::finish)
+                .map(monoRates -> monoRates.stream()
+                        .map(this::toCurrencyRate)
+                        .filter(Objects::nonNull)
+                        .toList());
+    }
+
+    private MonoBankRateParser.Session newSession() {
+        try {
+            return parser.newSession();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void feed(MonoBankRateParser.Session session, DataBuffer buffer) {
+        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+            while (chunks.hasNext()) {
+                session.feed(chunks.next());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed MonoBank payload", e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private List<MonoBankRateDTO> finish(MonoBankRateParser.Session session) {
+        try {
+            return session.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed MonoBank payload", e);
+        }
+    }
+
+    /**
+     * Converts a MonoBank entry, resolving both codes with array lookups.
+     * Entries that only carry a cross rate use it as both buy and sell rate.
+     *
+     * @param rate the decoded entry
+     * @return the rate, or null if a code is unknown to the registry
+     */
+    private CurrencyRateDTO toCurrencyRate(MonoBankRateDTO rate) {
+        CurrencyCode currency = currencyRegistry.byNumeric(rate.getCurrencyCodeA());
+        CurrencyCode base = currencyRegistry.byNumeric(rate.getCurrencyCodeB());
+        if (currency == null || base == null) {
+            return null;
+        }
+        boolean crossOnly = rate.getRateBuy() == 0 && rate.getRateSell() == 0;
+
+        CurrencyRateDTO dto = new CurrencyRateDTO();
+        dto.setCcy(currency.alphaCode());
+        dto.setBase_ccy(base.alphaCode());
+        dto.setBuy(crossOnly ? rate.getRateCross() : rate.getRateBuy());
+        dto.setSale(crossOnly ? rate.getRateCross() : rate.getRateSell());
+        dto.setCurrency(currency);
+        return dto;
+    }
+}
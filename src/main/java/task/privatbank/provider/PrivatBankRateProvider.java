@@ -0,0 +1,87 @@
+package task.privatbank.provider;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.currency.CurrencyCode;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.dto.CurrencyRateDTO;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * RateProvider backed by the PrivatBank public API.
+ * <p>
+ * Alphabetic codes are resolved through the CurrencyRegistry once per quote;
+ * quotes of codes it does not know (e.g., BTC) are dropped. Only quotes against UAH are kept,
+ * like the "*:980" tracked pairs of MonoBank, so every provider averages the same pairs.
+ */
+@Component
+@ConditionalOnProperty(prefix = "exchange.providers.privatbank", name = "enabled", matchIfMissing = true)
+@Slf4j
+public class PrivatBankRateProvider implements RateProvider {
+
+    public static final String NAME = "privatbank";
+
+    private static final String DEFAULT_URL = "https://api.privatbank.ua/p24api/pubinfo?exchange&coursid=5";
+
+    private final WebClient webClient;
+
+    private final String url;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    public PrivatBankRateProvider(WebClient providerWebClient, ExchangeProperties exchangeProperties,
+                                  CurrencyRegistry currencyRegistry) {
+        this.webClient = providerWebClient;
+        this.currencyRegistry = currencyRegistry;
+        this.url = Objects.requireNonNullElse(exchangeProperties.getProvider(NAME).getUrl(), DEFAULT_URL);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Calls PrivatBank API to retrieve currency rates.
+     *
+     * @return a Mono emitting the list of CurrencyRateDTO objects
+     */
+    @Override
+    public Mono<List<CurrencyRateDTO>> fetchRates() {
+        log.debug("Fetching rates from PrivatBank API...");
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToFlux(CurrencyRateDTO.class)
+                .filter(this::accept)
+                .collectList();
+    }
+
+    /**
+     * Keeps quotes against UAH and attaches the registry currency to them.
+     *
+     * @param rate the decoded quote
+     * @return false if the base currency is not UAH or the currency is unknown to the registry
+     */
+    private boolean accept(CurrencyRateDTO rate) {
+        CurrencyCode base = currencyRegistry.byAlpha(rate.getBase_ccy());
+        if (base == null || base.numericCode() != CurrencyRegistry.UAH) {
+            log.debug("Skipping PrivatBank quote of {} against base {}", rate.getCcy(), rate.getBase_ccy());
+            return false;
+        }
+        CurrencyCode currency = currencyRegistry.byAlpha(rate.getCcy());
+        if (currency == null) {
+            log.debug("Skipping PrivatBank quote of unknown currency {}", rate.getCcy());
+            return false;
+        }
+        rate.setCcy(currency.alphaCode());
+        rate.setCurrency(currency);
+        return true;
+    }
+}
@@ -0,0 +1,173 @@
+package task.privatbank.provider;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.dto.CurrencyRateDTO;
+import task.privatbank.exception.ProviderUnavailableException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Executes RateProvider calls on behalf of the ingestion engine.
+ * <p>
+ * Every call goes through the provider's guards:
+ * - the CircuitBreaker refuses calls while the provider keeps failing or answering slowly;
+ * - the AdaptiveRateLimiter schedules the call as fast as the provider allows;
+ * - the RequestHedger optionally hedges a slow call with a second request;
+ * - the deadline bounds the wait for a permit and the call itself.
+ * <p>
+ * Successful results are kept in the SnapshotCache. When the provider cannot be used
+ * (open breaker, error, timeout), its last-known-good snapshot is returned instead,
+ * as long as it is within the provider's staleness bound
+ * (counted by exchange.provider.fallback).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProviderExecutor {
+
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final SnapshotCache snapshotCache;
+    private final RequestHedger requestHedger;
+    private final ExchangeProperties exchangeProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Calls the provider through its guards, falling back to the last-known-good snapshot.
+     *
+     * @param provider the provider to call
+     * @param deadline the upper bound for the permit wait and the call together
+     * @return a Mono emitting the provider's rates, or an error if neither the provider
+     *         nor a fresh snapshot is available
+     */
+    public Mono<List<CurrencyRateDTO>> execute(RateProvider provider, Duration deadline) {
+        String name = provider.getName();
+        ExchangeProperties.Provider settings = exchangeProperties.getProvider(name);
+        return guarded(provider, settings, deadline)
+                .doOnNext(rates -> snapshotCache.put(name, rates))
+                .onErrorResume(e -> fallback(name, settings.getMaxStaleness(), e));
+    }
+
+    private Mono<List<CurrencyRateDTO>> guarded(RateProvider provider, ExchangeProperties.Provider settings,
+                                                Duration deadline) {
+        String name = provider.getName();
+        CircuitBreaker breaker = settings.getCircuitBreaker().isEnabled()
+                ? circuitBreakerRegistry.forProvider(name)
+                : null;
+
+        return Mono.defer(() -> {
+            if (breaker != null && !breaker.tryAcquirePermission()) {
+                return Mono.error(new ProviderUnavailableException("Circuit breaker of provider " + name + " is open"));
+            }
+            long deadlineAt = System.nanoTime() + deadline.toNanos();
+            return rateLimited(provider, settings, deadline)
+                    .doOnError(ProviderUnavailableException.class, e -> {
+                        if (breaker != null) {
+                            breaker.releasePermission();
+                        }
+                    })
+                    .then(Mono.defer(() -> timed(provider, breaker,
+                            Duration.ofNanos(Math.max(1, deadlineAt - System.nanoTime())))));
+        });
+    }
+
+    /**
+     * Waits for a permit of the provider's rate limiter, if rate limiting is enabled.
+     */
+    private Mono<Void> rateLimited(RateProvider provider, ExchangeProperties.Provider settings, Duration maxWait) {
+        if (!settings.getRateLimit().isEnabled()) {
+            return Mono.empty();
+        }
+        return rateLimiterRegistry.forProvider(provider.getName()).acquire(maxWait);
+    }
+
+    /**
+     * Sends the call, bounded by the remaining deadline, and reports its outcome
+     * to the circuit breaker and the rate limiter.
+     */
+    private Mono<List<CurrencyRateDTO>> timed(RateProvider provider, CircuitBreaker breaker, Duration remaining) {
+        ExchangeProperties.Provider settings = exchangeProperties.getProvider(provider.getName());
+        AdaptiveRateLimiter limiter = settings.getRateLimit().isEnabled()
+                ? rateLimiterRegistry.forProvider(provider.getName())
+                : null;
+        Mono<List<CurrencyRateDTO>> call = settings.getHedge().isEnabled()
+                ? requestHedger.call(provider.getName(), settings.getHedge(), provider::fetchRates,
+                        () -> limiter == null || limiter.tryAcquire())
+                : provider.fetchRates();
+        long start = System.nanoTime();
+        return call
+                .timeout(remaining)
+                .doOnSuccess(rates -> {
+                    if (breaker != null) {
+                        breaker.onSuccess(System.nanoTime() - start);
+                    }
+                    if (limiter != null) {
+                        limiter.onSuccess();
+                    }
+                })
+                .doOnError(e -> {
+                    if (breaker != null) {
+                        breaker.onError(System.nanoTime() - start);
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (breaker != null) {
+                        breaker.onError(System.nanoTime() - start);
+                    }
+                })
+                .doOnError(WebClientResponseException.TooManyRequests.class, e -> {
+                    Duration retryAfter = retryAfter(e);
+                    log.warn("429 Too Many Requests from provider={}, backing off (Retry-After={})",
+                            provider.getName(), retryAfter);
+                    if (limiter != null) {
+                        limiter.onThrottled(retryAfter);
+                    }
+                });
+    }
+
+    /**
+     * Serves the provider's last-known-good snapshot if it is fresh enough, otherwise propagates the failure.
+     */
+    private Mono<List<CurrencyRateDTO>> fallback(String provider, Duration maxStaleness, Throwable cause) {
+        Optional<ProviderSnapshot> snapshot = snapshotCache.getFresh(provider, maxStaleness);
+        if (snapshot.isEmpty()) {
+            return Mono.error(cause);
+        }
+        log.warn("Provider {} unavailable ({}), using last-known-good snapshot from {}",
+                provider, cause.getMessage(), snapshot.get().fetchedAt());
+        Counter.builder("exchange.provider.fallback")
+                .tag("provider", provider)
+                .description("Cycles served from the last-known-good snapshot")
+                .register(meterRegistry)
+                .increment();
+        return Mono.just(snapshot.get().rates());
+    }
+
+    /**
+     * Extracts the Retry-After header given in seconds.
+     *
+     * @param e the 429 response
+     * @return the requested delay, or null if absent or not in seconds
+     */
+    private Duration retryAfter(WebClientResponseException e) {
+        String value = e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package task.privatbank.provider;
+
+import task.privatbank.dto.CurrencyRateDTO;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The rates of a provider as returned by its last successful call.
+ *
+ * @param provider  the provider name
+ * @param rates     the rates returned by the provider
+ * @param fetchedAt when the rates were received
+ */
+public record ProviderSnapshot(String provider, List<CurrencyRateDTO> rates, Instant fetchedAt) {
+}
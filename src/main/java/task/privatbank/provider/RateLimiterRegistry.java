@@ -0,0 +1,69 @@
+package task.privatbank.provider;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import task.privatbank.config.ExchangeProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one AdaptiveRateLimiter per provider, created lazily from
+ * "exchange.providers.&lt;name&gt;.rate-limit.*", and publishes its state as metrics:
+ * - exchange.provider.rate_limit.rate:      learned permits per second
+ * - exchange.provider.rate_limit.tokens:    permits available right now
+ * - exchange.provider.rate_limit.throttled: 429 responses received
+ * - exchange.provider.rate_limit.rejected:  calls skipped because the wait exceeded the deadline
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimiterRegistry {
+
+    private final ExchangeProperties exchangeProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, AdaptiveRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the limiter of the given provider, creating it on first use.
+     *
+     * @param provider the provider name
+     * @return the provider's limiter
+     */
+    public AdaptiveRateLimiter forProvider(String provider) {
+        return limiters.computeIfAbsent(provider, this::create);
+    }
+
+    private AdaptiveRateLimiter create(String provider) {
+        ExchangeProperties.RateLimit settings = exchangeProperties.getProvider(provider).getRateLimit();
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(provider, settings.getBurst(),
+                settings.getInitialInterval(), settings.getMinInterval(), settings.getMaxInterval(),
+                settings.getIncreaseFactor(), settings.getDecreaseFactor());
+
+        Gauge.builder("exchange.provider.rate_limit.rate", limiter, AdaptiveRateLimiter::getRate)
+                .tag("provider", provider)
+                .description("Learned permits per second")
+                .register(meterRegistry);
+        Gauge.builder("exchange.provider.rate_limit.tokens", limiter, AdaptiveRateLimiter::getAvailableTokens)
+                .tag("provider", provider)
+                .description("Permits available right now")
+                .register(meterRegistry);
+        FunctionCounter.builder("exchange.provider.rate_limit.throttled", limiter, AdaptiveRateLimiter::getThrottledCount)
+                .tag("provider", provider)
+                .description("429 responses received")
+                .register(meterRegistry);
+        FunctionCounter.builder("exchange.provider.rate_limit.rejected", limiter, AdaptiveRateLimiter::getRejectedCount)
+                .tag("provider", provider)
+                .description("Calls skipped because the rate limit wait exceeded the deadline")
+                .register(meterRegistry);
+
+        log.info("Rate limiter created for provider={}: initialInterval={}, burst={}",
+                provider, settings.getInitialInterval(), settings.getBurst());
+        return limiter;
+    }
+}
@@ -0,0 +1,32 @@
+package task.privatbank.provider;
+
+import reactor.core.publisher.Mono;
+import task.privatbank.dto.CurrencyRateDTO;
+
+import java.util.List;
+
+/**
+ * A source of currency exchange rates (e.g., a bank public API).
+ * <p>
+ * Every Spring bean implementing this interface is picked up by the ingestion
+ * engine and queried concurrently with the other providers in each cycle.
+ * Implementations must not block: the returned Mono is subscribed on the
+ * engine's reactive pipeline and bounded by the cycle deadline.
+ */
+public interface RateProvider {
+
+    /**
+     * Returns the unique provider name, also used as its configuration key
+     * under "exchange.providers".
+     *
+     * @return the provider name, e.g. "privatbank"
+     */
+    String getName();
+
+    /**
+     * Fetches the current rates of this provider, normalized to CurrencyRateDTO.
+     *
+     * @return a Mono emitting the list of rates, or an error if the provider failed
+     */
+    Mono<List<CurrencyRateDTO>> fetchRates();
+}
@@ -0,0 +1,284 @@
+package task.privatbank.provider;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import task.privatbank.config.ExchangeProperties;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sends hedged requests to cut the latency tail of provider calls.
+ * <p>
+ * If the first attempt has not answered after the hedge delay (the configured latency
+ * percentile of recent calls, clamped to [minDelay, maxDelay]), a second attempt is sent
+ * and whichever answers first wins. The call fails only once both attempts have failed
+ * (or the first one failed before a hedge was sent). The losing attempt is not cancelled:
+ * it completes in the background, which keeps its pooled connection reusable and measures
+ * the latency the hedge actually saved. Only first attempts feed the percentile, including
+ * those beaten by a hedge, so the delay follows the provider's latency rather than the
+ * faster of two attempts.
+ * <p>
+ * Hedges are capped by a budget (a percentage of all requests) and by a permit of the
+ * provider's rate limiter, so hedging never pushes a provider beyond its limits.
+ * <p>
+ * Metrics per provider:
+ * - exchange.provider.hedge.sent:    hedges sent
+ * - exchange.provider.hedge.won:     hedges that answered before the first attempt
+ * - exchange.provider.hedge.skipped: hedges not sent because of the budget or the rate limit
+ * - exchange.provider.hedge.saved:   latency saved by winning hedges
+ * - exchange.provider.hedge.delay:   current hedge delay in seconds
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RequestHedger {
+
+    private static final int LATENCY_SAMPLES = 200;
+
+    /** Unused hedge budget is capped so a long quiet period cannot cause a burst of hedges. */
+    private static final double MAX_BUDGET_TOKENS = 10.0;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ProviderHedging> providers = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the attempt, hedging it with a second attempt if it is slow.
+     *
+     * @param provider    the provider name
+     * @param settings    the provider's hedge settings
+     * @param attempt     creates one attempt of the call
+     * @param hedgePermit asked right before sending a hedge; false skips it (e.g., no rate limit permit)
+     * @param <T>         the result type
+     * @return a Mono emitting the result of the first attempt to answer
+     */
+    public <T> Mono<T> call(String provider, ExchangeProperties.Hedge settings,
+                            Supplier<Mono<T>> attempt, BooleanSupplier hedgePermit) {
+        ProviderHedging hedging = providers.computeIfAbsent(provider, this::create);
+        return Mono.create(sink -> {
+            Duration delay = hedging.delay(settings);
+            hedging.depositBudget(settings.getBudgetPercent());
+            Race<T> race = new Race<>(sink, hedging, System.nanoTime());
+            Disposable.Swap hedgeAttempt = Disposables.swap();
+
+            Disposable primary = race.subscribe(attempt.get(), false);
+
+            // disposed by the race as soon as it settles, at once if the first attempt already answered
+            race.hedgeTimer.update(Mono.delay(delay).subscribe(tick -> {
+                if (race.isDone()) {
+                    return;
+                }
+                if (!hedging.hasBudget() || !hedgePermit.getAsBoolean()) {
+                    hedging.skipped.increment();
+                    return;
+                }
+                if (!race.startHedge()) {
+                    return;
+                }
+                hedging.withdrawBudget();
+                hedging.sent.increment();
+                hedgeAttempt.update(race.subscribe(attempt.get(), true));
+            }));
+
+            sink.onCancel(() -> {
+                primary.dispose();
+                race.hedgeTimer.dispose();
+                hedgeAttempt.dispose();
+            });
+        });
+    }
+
+    private ProviderHedging create(String provider) {
+        ProviderHedging hedging = new ProviderHedging(
+                Counter.builder("exchange.provider.hedge.sent").tag("provider", provider)
+                        .description("Hedged requests sent").register(meterRegistry),
+                Counter.builder("exchange.provider.hedge.won").tag("provider", provider)
+                        .description("Hedged requests that answered first").register(meterRegistry),
+                Counter.builder("exchange.provider.hedge.skipped").tag("provider", provider)
+                        .description("Hedges not sent because of the budget or the rate limit").register(meterRegistry),
+                Timer.builder("exchange.provider.hedge.saved").tag("provider", provider)
+                        .description("Latency saved by hedged requests that answered first").register(meterRegistry));
+        Gauge.builder("exchange.provider.hedge.delay", hedging, h -> h.lastDelayNanos / 1_000_000_000.0)
+                .tag("provider", provider)
+                .description("Current hedge delay in seconds")
+                .register(meterRegistry);
+        return hedging;
+    }
+
+    /**
+     * Outcome of one hedged call, shared by the first attempt, the hedge and the hedge timer.
+     * <p>
+     * The first attempt to answer, with a value or empty, wins, and the hedge timer is disposed
+     * as soon as the outcome is known. The latency of the first attempt is recorded whenever
+     * it answers, even after a hedge won. An error is propagated once no attempt is left
+     * in flight and no hedge can follow, so a failing first attempt still waits for a pending
+     * hedge. All state changes happen under the instance monitor.
+     */
+    private static final class Race<T> {
+
+        private final MonoSink<T> sink;
+        private final ProviderHedging hedging;
+        private final long start;
+        private final Disposable.Swap hedgeTimer = Disposables.swap();
+
+        private boolean done;
+        private boolean hedgeSent;
+        private int inFlight = 1;
+        private long winnerLatency;
+        private Throwable error;
+
+        private Race(MonoSink<T> sink, ProviderHedging hedging, long start) {
+            this.sink = sink;
+            this.hedging = hedging;
+            this.start = start;
+        }
+
+        private Disposable subscribe(Mono<T> attempt, boolean isHedge) {
+            long attemptStart = System.nanoTime();
+            AtomicBoolean answered = new AtomicBoolean();
+            return attempt.subscribe(
+                    value -> {
+                        answered.set(true);
+                        answer(value, attemptStart, isHedge);
+                    },
+                    this::fail,
+                    () -> {
+                        if (!answered.get()) {
+                            answer(null, attemptStart, isHedge);
+                        }
+                    });
+        }
+
+        private synchronized boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Registers the hedge before it is sent.
+         *
+         * @return false if the call already has its outcome
+         */
+        private synchronized boolean startHedge() {
+            if (done) {
+                return false;
+            }
+            hedgeSent = true;
+            inFlight++;
+            return true;
+        }
+
+        private synchronized void answer(T value, long attemptStart, boolean isHedge) {
+            long now = System.nanoTime();
+            inFlight--;
+            if (!isHedge) {
+                hedging.latencies.record(now - attemptStart);
+            }
+            if (done) {
+                // a first attempt answering after the winning hedge measures the saved latency
+                if (value != null && !isHedge) {
+                    hedging.saved.record(now - start - winnerLatency, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+            settle();
+            winnerLatency = now - start;
+            if (isHedge) {
+                hedging.won.increment();
+            }
+            if (value != null) {
+                sink.success(value);
+            } else {
+                sink.success();
+            }
+        }
+
+        private synchronized void fail(Throwable failure) {
+            inFlight--;
+            if (done) {
+                return;
+            }
+            if (error == null) {
+                error = failure;
+            } else {
+                error.addSuppressed(failure);
+            }
+            if (inFlight > 0) {
+                // the hedge is still pending and decides the outcome
+                log.debug("Attempt failed while another is in flight: {}", failure.toString());
+                return;
+            }
+            // no hedge is sent after a failure that leaves nothing in flight
+            settle();
+            if (hedgeSent) {
+                log.debug("Both the first attempt and the hedge failed");
+            }
+            sink.error(error);
+        }
+
+        private void settle() {
+            done = true;
+            hedgeTimer.dispose();
+        }
+    }
+
+    /**
+     * Hedging state of a single provider.
+     */
+    private static final class ProviderHedging {
+
+        private final LatencyTracker latencies = new LatencyTracker(LATENCY_SAMPLES);
+        private final Counter sent;
+        private final Counter won;
+        private final Counter skipped;
+        private final Timer saved;
+
+        private double budgetTokens;
+        private volatile long lastDelayNanos;
+
+        private ProviderHedging(Counter sent, Counter won, Counter skipped, Timer saved) {
+            this.sent = sent;
+            this.won = won;
+            this.skipped = skipped;
+            this.saved = saved;
+        }
+
+        /**
+         * The configured latency percentile of recent calls, or maxDelay until enough calls were seen.
+         */
+        private Duration delay(ExchangeProperties.Hedge settings) {
+            long nanos = latencies.size() < settings.getMinSamples()
+                    ? settings.getMaxDelay().toNanos()
+                    : latencies.percentile(settings.getPercentile());
+            nanos = Math.min(settings.getMaxDelay().toNanos(), Math.max(settings.getMinDelay().toNanos(), nanos));
+            lastDelayNanos = nanos;
+            return Duration.ofNanos(nanos);
+        }
+
+        private synchronized void depositBudget(double budgetPercent) {
+            budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + budgetPercent / 100.0);
+        }
+
+        private synchronized boolean hasBudget() {
+            return budgetTokens >= 1.0;
+        }
+
+        private synchronized void withdrawBudget() {
+            budgetTokens = Math.max(0.0, budgetTokens - 1.0);
+        }
+    }
+}
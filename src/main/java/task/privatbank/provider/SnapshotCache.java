@@ -0,0 +1,57 @@
+package task.privatbank.provider;
+
+import org.springframework.stereotype.Component;
+import task.privatbank.dto.CurrencyRateDTO;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory cache of the last-known-good snapshot of every provider.
+ * <p>
+ * Used as a fallback while a provider is unavailable (e.g., its circuit breaker is open),
+ * but only within a staleness bound so outdated rates never enter an average.
+ */
+@Component
+public class SnapshotCache {
+
+    private final Map<String, ProviderSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final Clock clock;
+
+    public SnapshotCache() {
+        this(Clock.systemUTC());
+    }
+
+    SnapshotCache(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Stores the rates of a successful provider call.
+     *
+     * @param provider the provider name
+     * @param rates    the rates it returned
+     */
+    public void put(String provider, List<CurrencyRateDTO> rates) {
+        snapshots.put(provider, new ProviderSnapshot(provider, List.copyOf(rates), clock.instant()));
+    }
+
+    /**
+     * Returns the last snapshot of a provider if it is not older than maxAge.
+     *
+     * @param provider the provider name
+     * @param maxAge   the staleness bound
+     * @return the snapshot, or empty if there is none or it is too old
+     */
+    public Optional<ProviderSnapshot> getFresh(String provider, Duration maxAge) {
+        Instant oldest = clock.instant().minus(maxAge);
+        return Optional.ofNullable(snapshots.get(provider))
+                .filter(snapshot -> !snapshot.fetchedAt().isBefore(oldest));
+    }
+}
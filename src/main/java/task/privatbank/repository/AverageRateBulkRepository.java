@@ -0,0 +1,81 @@
+package task.privatbank.repository;
+
+import task.privatbank.model.AverageRate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Custom repository fragment for writing large numbers of AverageRate entities,
+ * e.g. an ingestion burst of hundreds of currencies or a historical backfill.
+ */
+public interface AverageRateBulkRepository {
+
+    /**
+     * Persists all rates in JDBC batches of "hibernate.jdbc.batch_size" rows.
+     * <p>
+     * The persistence context is flushed and cleared after every batch, so memory stays
+     * flat however many rows are written; the saved entities are detached afterwards.
+     *
+     * @param rates new entities without ids
+     * @return the number of persisted rows
+     */
+    int bulkSave(Collection<AverageRate> rates);
+
+    /**
+     * Inserts or overwrites averages keyed by (currency, timestamp) with a single
+     * INSERT ... ON CONFLICT DO UPDATE statement. Joins the caller's transaction.
+     * <p>
+     * A key whose row already holds the same rate and validTo is left alone, so writing the same
+     * average again is a no-op that reports no change. Ids come from the entity's pooled sequence
+     * allocator, the one entityManager.persist() uses, and stay unused for keys that exist.
+     *
+     * @param rates the averages, timestamped with the start of their bucket;
+     *              a missing validTo is written as the timestamp
+     * @return the given averages whose row the statement inserted or changed, in input order,
+     *         with the id of their row; of repeated keys the last average wins
+     */
+    List<AverageRate> upsert(Collection<AverageRate> rates);
+
+    /**
+     * Reads the latest row of every given currency, i.e. the run later averages may extend.
+     *
+     * @param currencies the currency codes
+     * @param since      the lower bound of the row timestamps, e.g. AverageRateRepository.runStartBound()
+     * @return the latest row per currency code; currencies without a row since the bound are absent
+     */
+    Map<String, AverageRate> findLatest(Collection<String> currencies, LocalDateTime since);
+
+    /**
+     * Reads and locks the row whose run covers a bucket: it starts at or before the bucket
+     * and its validTo is at or after it.
+     *
+     * @param currency the currency code
+     * @param bucket   the start of an aggregation bucket
+     * @return the covering row, if any
+     */
+    Optional<AverageRate> findCovering(String currency, LocalDateTime bucket);
+
+    /**
+     * Overwrites the rate and validTo of the row addressed by (currency, timestamp),
+     * e.g. to cut a run short before a bucket with another rate.
+     *
+     * @param row the row with its new rate and validTo
+     * @return whether the row exists
+     */
+    boolean rewrite(AverageRate row);
+
+    /**
+     * Extends run-length rows to a later bucket by raising their valid_to, in one JDBC batch.
+     * Each row is addressed by (currency, timestamp), so the update touches a single partition.
+     * A row is only extended while it still holds the run's rate and is the latest row of its
+     * currency; a row overwritten or followed by another writer's row is left alone.
+     *
+     * @param runs the rows with their timestamp, rate and the new validTo
+     * @return for every run whether its row was extended; missing rows are not created
+     */
+    boolean[] extendRuns(List<AverageRate> runs);
+}
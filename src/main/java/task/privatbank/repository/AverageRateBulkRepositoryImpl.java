@@ -0,0 +1,267 @@
+package task.privatbank.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import task.privatbank.model.AverageRate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Implementation of {@link AverageRateBulkRepository}, picked up by Spring Data
+ * through the "Impl" suffix and mixed into AverageRateRepository.
+ */
+@Slf4j
+public class AverageRateBulkRepositoryImpl implements AverageRateBulkRepository {
+
+    /**
+     * Writes all keys in one statement. An existing key is overwritten unless unchanged; valid_to
+     * only ever grows, so rewriting the first bucket of a run keeps the run. RETURNING lists only
+     * the rows actually written, xmax = 0 telling an insert from an update.
+     */
+    private static final String UPSERT_SQL = """
+            INSERT INTO average_rates (id, currency, buy_rate, sell_rate, timestamp, valid_to)
+            SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::bigint[], ?::bigint[], ?::timestamp[], ?::timestamp[])
+            ON CONFLICT (currency, timestamp) DO UPDATE SET
+                buy_rate  = EXCLUDED.buy_rate,
+                sell_rate = EXCLUDED.sell_rate,
+                valid_to  = GREATEST(average_rates.valid_to, EXCLUDED.valid_to)
+            WHERE (average_rates.buy_rate, average_rates.sell_rate) IS DISTINCT FROM (EXCLUDED.buy_rate, EXCLUDED.sell_rate)
+               OR average_rates.valid_to < EXCLUDED.valid_to
+            RETURNING id, currency, timestamp, xmax = 0 AS inserted
+            """;
+
+    /** The latest row of every currency, through the (currency, timestamp) index of each partition. */
+    private static final String FIND_LATEST_SQL = """
+            SELECT DISTINCT ON (currency) id, currency, buy_rate, sell_rate, timestamp, valid_to
+            FROM average_rates
+            WHERE currency = ANY (?) AND timestamp >= ?
+            ORDER BY currency, timestamp DESC
+            """;
+
+    /** Extends a row only while it still holds the rate and no later row of its currency exists. */
+    private static final String EXTEND_RUN_SQL = """
+            UPDATE average_rates SET valid_to = ?
+            WHERE currency = ? AND timestamp = ? AND valid_to <= ? AND buy_rate = ? AND sell_rate = ?
+              AND NOT EXISTS (
+                SELECT 1 FROM average_rates later
+                WHERE later.currency = average_rates.currency AND later.timestamp > average_rates.timestamp)
+            """;
+
+    /**
+     * The row whose run covers a bucket, locked against concurrent writers; runs never cross
+     * midnight, so the search starts at the day of the bucket.
+     */
+    private static final String FIND_COVERING_SQL = """
+            SELECT id, currency, buy_rate, sell_rate, timestamp, valid_to
+            FROM average_rates
+            WHERE currency = ? AND timestamp BETWEEN ? AND ? AND valid_to >= ?
+            ORDER BY timestamp DESC
+            LIMIT 1
+            FOR UPDATE
+            """;
+
+    private static final String REWRITE_SQL = """
+            UPDATE average_rates SET buy_rate = ?, sell_rate = ?, valid_to = ?
+            WHERE currency = ? AND timestamp = ?
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public int bulkSave(Collection<AverageRate> rates) {
+        int count = 0;
+        for (AverageRate rate : rates) {
+            entityManager.persist(rate);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        log.debug("Bulk-saved {} average rates in batches of {}", count, batchSize);
+        return count;
+    }
+
+    @Override
+    @Transactional
+    public List<AverageRate> upsert(Collection<AverageRate> rates) {
+        // a key must not be written twice in one statement
+        Map<String, AverageRate> latest = new LinkedHashMap<>();
+        for (AverageRate rate : rates) {
+            latest.put(key(rate.getCurrency(), rate.getTimestamp()), rate);
+        }
+        if (latest.isEmpty()) {
+            return List.of();
+        }
+        int size = latest.size();
+        Long[] ids = new Long[size];
+        String[] currencies = new String[size];
+        Long[] buyRates = new Long[size];
+        Long[] sellRates = new Long[size];
+        Timestamp[] timestamps = new Timestamp[size];
+        Timestamp[] validTos = new Timestamp[size];
+        int i = 0;
+        for (AverageRate rate : latest.values()) {
+            // used only if the key is new; a pooled id costs no sequence call
+            ids[i] = nextId(rate);
+            currencies[i] = rate.getCurrency();
+            buyRates[i] = rate.getBuyRate();
+            sellRates[i] = rate.getSellRate();
+            timestamps[i] = Timestamp.valueOf(rate.getTimestamp());
+            validTos[i++] = Timestamp.valueOf(validTo(rate));
+        }
+
+        Map<String, Boolean> written = new HashMap<>();
+        Map<String, Long> writtenIds = new HashMap<>();
+        jdbcTemplate.query(UPSERT_SQL, statement -> {
+            Connection connection = statement.getConnection();
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            statement.setArray(2, connection.createArrayOf("varchar", currencies));
+            statement.setArray(3, connection.createArrayOf("bigint", buyRates));
+            statement.setArray(4, connection.createArrayOf("bigint", sellRates));
+            statement.setArray(5, connection.createArrayOf("timestamp", timestamps));
+            statement.setArray(6, connection.createArrayOf("timestamp", validTos));
+        }, (ResultSet resultSet) -> {
+            String key = key(resultSet.getString(2), resultSet.getObject(3, LocalDateTime.class));
+            writtenIds.put(key, resultSet.getLong(1));
+            written.put(key, resultSet.getBoolean(4));
+        });
+
+        List<AverageRate> changed = new ArrayList<>(written.size());
+        int inserted = 0;
+        for (Map.Entry<String, AverageRate> entry : latest.entrySet()) {
+            Boolean insert = written.get(entry.getKey());
+            if (insert != null) {
+                entry.getValue().setId(writtenIds.get(entry.getKey()));
+                changed.add(entry.getValue());
+                inserted += insert ? 1 : 0;
+            }
+        }
+        log.debug("Upserted {} average rates: {} inserted, {} updated, {} unchanged",
+                size, inserted, changed.size() - inserted, size - changed.size());
+        return changed;
+    }
+
+    /**
+     * Draws an id from the pooled optimizer of the entity's sequence generator, the same one
+     * entityManager.persist() uses, so upserted and persisted rows share the allocated blocks.
+     */
+    private long nextId(AverageRate rate) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(AverageRate.class);
+        Object id = ((BeforeExecutionGenerator) persister.getGenerator()).generate(session, rate, null, EventType.INSERT);
+        return ((Number) id).longValue();
+    }
+
+    private static String key(String currency, LocalDateTime timestamp) {
+        return currency + '@' + timestamp;
+    }
+
+    private static LocalDateTime validTo(AverageRate rate) {
+        return rate.getValidTo() != null ? rate.getValidTo() : rate.getTimestamp();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, AverageRate> findLatest(Collection<String> currencies, LocalDateTime since) {
+        Map<String, AverageRate> latest = new HashMap<>();
+        if (currencies.isEmpty()) {
+            return latest;
+        }
+        String[] codes = currencies.toArray(String[]::new);
+        jdbcTemplate.query(FIND_LATEST_SQL, statement -> {
+            statement.setArray(1, statement.getConnection().createArrayOf("varchar", codes));
+            statement.setObject(2, since);
+        }, (ResultSet resultSet) -> {
+            AverageRate row = mapRow(resultSet);
+            latest.put(row.getCurrency(), row);
+        });
+        return latest;
+    }
+
+    /**
+     * Maps a row selected as (id, currency, buy_rate, sell_rate, timestamp, valid_to).
+     */
+    private static AverageRate mapRow(ResultSet resultSet) throws SQLException {
+        AverageRate row = new AverageRate();
+        row.setId(resultSet.getLong(1));
+        row.setCurrency(resultSet.getString(2));
+        row.setBuyRate(resultSet.getLong(3));
+        row.setSellRate(resultSet.getLong(4));
+        row.setTimestamp(resultSet.getObject(5, LocalDateTime.class));
+        row.setValidTo(resultSet.getObject(6, LocalDateTime.class));
+        return row;
+    }
+
+    @Override
+    @Transactional
+    public Optional<AverageRate> findCovering(String currency, LocalDateTime bucket) {
+        List<AverageRate> rows = jdbcTemplate.query(FIND_COVERING_SQL, (resultSet, rowNum) -> mapRow(resultSet),
+                currency, AverageRateRepository.runStartBound(bucket), bucket, bucket);
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    @Transactional
+    public boolean rewrite(AverageRate row) {
+        return jdbcTemplate.update(REWRITE_SQL, row.getBuyRate(), row.getSellRate(), validTo(row),
+                row.getCurrency(), row.getTimestamp()) > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] extendRuns(List<AverageRate> runs) {
+        boolean[] found = new boolean[runs.size()];
+        if (runs.isEmpty()) {
+            return found;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(EXTEND_RUN_SQL, runs, batchSize, (statement, run) -> {
+            statement.setObject(1, run.getValidTo());
+            statement.setString(2, run.getCurrency());
+            statement.setObject(3, run.getTimestamp());
+            statement.setObject(4, run.getValidTo());
+            statement.setLong(5, run.getBuyRate());
+            statement.setLong(6, run.getSellRate());
+        });
+        int index = 0;
+        int extended = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // UPDATE batches report their row counts; 0 means the row is gone, changed or superseded
+                found[index++] = count > 0;
+                extended += count > 0 ? 1 : 0;
+            }
+        }
+        log.debug("Extended {} of {} run-length average rates", extended, runs.size());
+        return found;
+    }
+}
@@ -1,53 +1,237 @@
 package task.privatbank.repository;
 
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import task.privatbank.dto.AverageRateView;
+import task.privatbank.dto.RateChangeView;
 import task.privatbank.model.AverageRate;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing AverageRate entities.
  * <p>
  * Provides methods to retrieve the latest entry,
  * the top 2 entries, or entries after a certain timestamp.
+ * Reads return {@link AverageRateView} projections marked read-only, so no entity is
+ * hydrated or tracked by the persistence context; entities are only used for writes.
  * <p>
  * Uses Caffeine cache annotations to store recent queries.
+ * Bulk writes are provided by the {@link AverageRateBulkRepository} fragment.
+ * <p>
+ * All queries are served by the covering index idx_average_rates_currency_timestamp_id
+ * on (currency, timestamp DESC, id DESC), see db/migration/V5 and V8. The table is partitioned by month
+ * (db/migration/V3), so every query carries a timestamp lower bound for partition pruning.
+ * <p>
+ * A row holds its rate from timestamp to validTo (db/migration/V8). Range reads return every row
+ * overlapping the range; since runs never cross midnight, {@link #runStartBound} of the range start
+ * still bounds the timestamp for pruning.
  */
 @Repository
-public interface AverageRateRepository extends JpaRepository<AverageRate, Long> {
+public interface AverageRateRepository extends JpaRepository<AverageRate, Long>, AverageRateBulkRepository {
+
+    /** JDBC fetch size of the range reads: rows per round trip while the result is streamed. */
+    String READ_FETCH_SIZE = "256";
+
+    /** JDBC fetch size of the export: rows held in memory at a time by the server-side cursor. */
+    String EXPORT_FETCH_SIZE = "1000";
+
+    /**
+     * Change of the buy rate between consecutive rows of each currency, computed by LAG()
+     * over (PARTITION BY currency ORDER BY timestamp), in basis points. The first row of every
+     * currency has no predecessor and is filtered out, and so is every zero change: run-length
+     * rows only report the starts of runs, so per-bucket rows report the same changes.
+     * Rates are scaled BIGINTs, so the division is done in numeric and rounded half away from
+     * zero, like FixedPoint.changeBasisPoints.
+     */
+    String CHANGES_SQL_HEAD = """
+            SELECT currency, timestamp, change_bps AS "changeBps"
+            FROM (SELECT currency, timestamp,
+                         ROUND((buy_rate - LAG(buy_rate) OVER w) * 10000::numeric / LAG(buy_rate) OVER w)
+                             ::bigint AS change_bps
+                  FROM average_rates
+                  WHERE timestamp > :since
+            """;
+
+    String CHANGES_SQL_TAIL = """
+                  WINDOW w AS (PARTITION BY currency ORDER BY timestamp)) changes
+            WHERE change_bps <> 0
+            ORDER BY currency, timestamp
+            """;
+
+    String CHANGES_SQL_ONE_CURRENCY = CHANGES_SQL_HEAD + "      AND currency = :currency\n" + CHANGES_SQL_TAIL;
+
+    String CHANGES_SQL_ALL_CURRENCIES = CHANGES_SQL_HEAD + CHANGES_SQL_TAIL;
+
+    /**
+     * Returns the earliest timestamp of a row that can still be valid at the given time:
+     * the start of its day, as runs never cross midnight.
+     *
+     * @param time the time
+     * @return the lower bound for the timestamp of the rows overlapping time
+     */
+    static LocalDateTime runStartBound(LocalDateTime time) {
+        return time.toLocalDate().atStartOfDay();
+    }
 
     /**
-     * Finds the latest AverageRate for a given currency.
-     * Uses a cache named "lastRate".
+     * Finds the latest AverageRate for a given currency stored after a lower bound.
+     * The bound lets PostgreSQL prune every older partition.
+     * Uses a cache named "lastRate", keyed by currency and bound, so a result is never
+     * served for another lookback window.
      *
      * @param currency The currency code
-     * @return The most recent AverageRate record if present
+     * @param since    The lower bound of the timestamp
+     * @return The most recent rate, as a read-only projection, if present
      */
-    @Cacheable("lastRate")
-    Optional<AverageRate> findTopByCurrencyOrderByTimestampDesc(String currency);
+    @Cacheable(value = "lastRate", key = "{#currency, #since}")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Optional<AverageRateView> findTopByCurrencyAndTimestampAfterOrderByTimestampDesc(String currency,
+                                                                                     LocalDateTime since);
 
     /**
-     * Finds the top 2 most recent AverageRate records for a given currency.
-     * Uses a cache named "hourlyRates".
+     * Finds the top 2 most recent AverageRate records for a given currency stored after a lower bound.
+     * The bound lets PostgreSQL prune every older partition.
+     * Uses a cache named "hourlyRates", keyed by currency and bound.
      *
      * @param currency The currency code
-     * @return List of up to 2 AverageRate records
+     * @param since    The lower bound of the timestamp
+     * @return List of up to 2 rates as read-only projections
+     */
+    @Cacheable(value = "hourlyRates", key = "{#currency, #since}")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "2")
+    })
+    List<AverageRateView> findTop2ByCurrencyAndTimestampAfterOrderByTimestampDesc(String currency,
+                                                                                  LocalDateTime since);
+
+    /**
+     * Finds all AverageRate records for a currency still valid after a given time,
+     * including the run that was current at that time. Uses a cache named "validRates",
+     * keyed by all arguments.
+     *
+     * @param currency   The currency code
+     * @param startBound The lower bound of the timestamp, see {@link #runStartBound}
+     * @param since      The exclusive lower bound of validTo
+     * @return List of rates as read-only projections ordered ascending by timestamp
+     */
+    @Cacheable(value = "validRates", key = "{#currency, #startBound, #since}")
+    @Query("""
+            SELECT new task.privatbank.dto.AverageRateView(r.id, r.currency, r.buyRate, r.sellRate,
+                                                           r.timestamp, r.validTo)
+            FROM AverageRate r
+            WHERE r.currency = :currency
+              AND r.timestamp >= :startBound
+              AND r.validTo > :since
+            ORDER BY r.timestamp
+            """)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = READ_FETCH_SIZE)
+    })
+    List<AverageRateView> findValidAfter(@Param("currency") String currency,
+                                         @Param("startBound") LocalDateTime startBound,
+                                         @Param("since") LocalDateTime since);
+
+    /**
+     * Returns the buy rate changes of a currency after a given timestamp,
+     * without loading the entities. With run-length rows a change is reported at the start
+     * of the run it leads to. Uses a cache named "dailyChanges", keyed by currency and bound.
+     *
+     * @param currency The currency code
+     * @param since    The exclusive lower bound of the timestamp
+     * @return (currency, timestamp, changeBps) tuples ordered ascending by timestamp
+     */
+    @Cacheable(value = "dailyChanges", key = "{#currency, #since}")
+    @Query(value = CHANGES_SQL_ONE_CURRENCY, nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = READ_FETCH_SIZE))
+    List<RateChangeView> findChangesByCurrencySince(@Param("currency") String currency,
+                                                    @Param("since") LocalDateTime since);
+
+    /**
+     * Returns the buy rate changes of every currency after a given timestamp in a single
+     * round trip. Uses a cache named "allDailyChanges", keyed by the bound.
+     *
+     * @param since The exclusive lower bound of the timestamp
+     * @return (currency, timestamp, changeBps) tuples ordered by currency and timestamp
+     */
+    @Cacheable(value = "allDailyChanges", key = "#since")
+    @Query(value = CHANGES_SQL_ALL_CURRENCIES, nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = READ_FETCH_SIZE))
+    List<RateChangeView> findChangesSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Finds a page of the rate history of a currency, newest first, by keyset pagination:
+     * rows strictly before (beforeTimestamp, beforeId) in (timestamp DESC, id DESC) order
+     * and still valid at "from". Each page is one range scan of the composite index,
+     * so its cost does not depend on how deep into the history it is.
+     *
+     * @param currency        The currency code
+     * @param startBound      The lower bound of the timestamp, see {@link #runStartBound}
+     * @param from            The inclusive lower bound of validTo
+     * @param beforeTimestamp The timestamp of the keyset position
+     * @param beforeId        The id of the keyset position
+     * @param limit           The maximum number of rows
+     * @return List of rates as read-only projections ordered by timestamp and id descending
      */
-    @Cacheable("hourlyRates")
-    List<AverageRate> findTop2ByCurrencyOrderByTimestampDesc(String currency);
+    @Query("""
+            SELECT new task.privatbank.dto.AverageRateView(r.id, r.currency, r.buyRate, r.sellRate,
+                                                           r.timestamp, r.validTo)
+            FROM AverageRate r
+            WHERE r.currency = :currency
+              AND r.timestamp >= :startBound
+              AND r.validTo >= :from
+              AND (r.timestamp, r.id) < (:beforeTimestamp, :beforeId)
+            ORDER BY r.timestamp DESC, r.id DESC
+            """)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<AverageRateView> findHistoryPage(@Param("currency") String currency,
+                                          @Param("startBound") LocalDateTime startBound,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                          @Param("beforeId") long beforeId,
+                                          Limit limit);
 
     /**
-     * Finds all AverageRate records for a currency after a given timestamp.
-     * Uses a cache named "dailyRates".
+     * Streams the rates of a currency valid at some time within [from, to], oldest first.
+     * <p>
+     * Must be consumed inside a read-only transaction: PostgreSQL then keeps a server-side
+     * cursor and sends EXPORT_FETCH_SIZE rows per round trip, and the projections are not
+     * tracked by the persistence context, so memory stays constant whatever the row count.
+     * The stream must be closed by the caller.
      *
-     * @param currency  The currency code
-     * @param timestamp The cutoff timestamp
-     * @return List of AverageRate records ordered ascending by timestamp
+     * @param currency   The currency code
+     * @param startBound The lower bound of the timestamp, see {@link #runStartBound}
+     * @param from       The inclusive lower bound of validTo
+     * @param to         The inclusive upper bound of the timestamp
+     * @return Stream of rates as read-only projections ordered ascending by timestamp and id
      */
-    @Cacheable("dailyRates")
-    List<AverageRate> findByCurrencyAndTimestampAfterOrderByTimestampAsc(String currency, LocalDateTime timestamp);
-}
\ No newline at end of file
+    @Query("""
+            SELECT new task.privatbank.dto.AverageRateView(r.id, r.currency, r.buyRate, r.sellRate,
+                                                           r.timestamp, r.validTo)
+            FROM AverageRate r
+            WHERE r.currency = :currency
+              AND r.timestamp BETWEEN :startBound AND :to
+              AND r.validTo >= :from
+            ORDER BY r.timestamp, r.id
+            """)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE)
+    })
+    Stream<AverageRateView> streamHistory(@Param("currency") String currency,
+                                          @Param("startBound") LocalDateTime startBound,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,369 @@
+package task.privatbank.repository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.dto.AverageRateView;
+import task.privatbank.model.AverageRate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only, memory-mapped store of the averages, one file per currency.
+ * <p>
+ * Every file holds a header followed by fixed-width big-endian records of
+ * (epoch-ms, buy, sell), with the rates scaled by FixedPoint. Ticks are appended in timestamp
+ * order, so the latest, top-2 and since-timestamp reads are a binary search over the mapped
+ * buffer: no row header, no index and no query round trip. A range of ticks is a contiguous
+ * region of the file, which is copied to the response with FileChannel.transferTo.
+ * <p>
+ * Timestamps are stored as the epoch milliseconds of their UTC reading, so a LocalDateTime
+ * round-trips unchanged (truncated to milliseconds). A record becomes visible only once the
+ * count in the header is advanced, so a crash mid-append leaves no torn record behind.
+ * <p>
+ * Enabled with "exchange.storage.tick-store.enabled"; PostgreSQL stays the system of record.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "exchange.storage.tick-store", name = "enabled")
+@Slf4j
+public class MappedTickStore {
+
+    /** Bytes of one record: epoch-ms, buy and sell, each a long. */
+    public static final int RECORD_SIZE = 3 * Long.BYTES;
+
+    /** Bytes of the header: magic, record size and record count; padded to one record. */
+    static final int HEADER_SIZE = RECORD_SIZE;
+
+    private static final int MAGIC = 0x5449434B;
+    private static final int RECORD_SIZE_OFFSET = Integer.BYTES;
+    private static final int COUNT_OFFSET = 2 * Integer.BYTES;
+
+    /** A single MappedByteBuffer is limited to 2 GiB. */
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private static final String EXTENSION = ".ticks";
+
+    private static final Pattern CURRENCY = Pattern.compile("[A-Z]{3}");
+
+    private final Path directory;
+    private final int initialCapacity;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    public MappedTickStore(ExchangeProperties exchangeProperties) throws IOException {
+        ExchangeProperties.TickStore settings = exchangeProperties.getStorage().getTickStore();
+        this.directory = settings.getDirectory();
+        this.initialCapacity = Math.max(1, Math.min(settings.getInitialCapacity(), MAX_CAPACITY));
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String currency = name.substring(0, name.length() - EXTENSION.length());
+                if (CURRENCY.matcher(currency).matches()) {
+                    series.put(currency, new Series(currency, file));
+                }
+            }
+        }
+        log.info("Tick store opened in {} with {} currencies", directory.toAbsolutePath(), series.size());
+    }
+
+    /**
+     * Appends the given averages, forcing every touched file to disk once.
+     * An average with the timestamp of the last tick of its currency overwrites that tick,
+     * like the upsert of the database row. Older averages would break the ordering and are skipped.
+     *
+     * @param rates the averages just stored
+     * @return the number of appended ticks
+     * @throws UncheckedIOException if a file cannot be created or grown
+     */
+    public int append(Collection<AverageRate> rates) {
+        Set<Series> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+        int appended = 0;
+        for (AverageRate rate : rates) {
+            Series target = series.computeIfAbsent(rate.getCurrency(), this::create);
+            if (target.append(toEpochMilli(rate.getTimestamp()), rate.getBuyRate(), rate.getSellRate())) {
+                appended++;
+                touched.add(target);
+            } else {
+                log.warn("Skipping out-of-order tick of currency={} at {}", rate.getCurrency(), rate.getTimestamp());
+            }
+        }
+        touched.forEach(Series::force);
+        return appended;
+    }
+
+    /**
+     * Returns the latest tick of a currency stored after a lower bound.
+     *
+     * @param currency the currency code
+     * @param since    the exclusive lower bound of the timestamp
+     * @return the latest tick, if present
+     */
+    public Optional<AverageRateView> findLatest(String currency, LocalDateTime since) {
+        List<AverageRateView> latest = findLatest(currency, since, 1);
+        return latest.isEmpty() ? Optional.empty() : Optional.of(latest.get(0));
+    }
+
+    /**
+     * Returns up to limit latest ticks of a currency stored after a lower bound.
+     *
+     * @param currency the currency code
+     * @param since    the exclusive lower bound of the timestamp
+     * @param limit    the maximum number of ticks
+     * @return the ticks, newest first
+     */
+    public List<AverageRateView> findLatest(String currency, LocalDateTime since, int limit) {
+        Series target = series.get(currency);
+        if (target == null) {
+            return List.of();
+        }
+        int count = target.count;
+        MappedByteBuffer buffer = target.buffer;
+        int first = Math.max(upperBound(buffer, count, toEpochMilli(since)), count - limit);
+        List<AverageRateView> ticks = new ArrayList<>(count - first);
+        for (int i = count - 1; i >= first; i--) {
+            ticks.add(view(currency, buffer, i));
+        }
+        return ticks;
+    }
+
+    /**
+     * Returns all ticks of a currency stored after a lower bound.
+     *
+     * @param currency the currency code
+     * @param since    the exclusive lower bound of the timestamp
+     * @return the ticks ordered ascending by timestamp
+     */
+    public List<AverageRateView> findSince(String currency, LocalDateTime since) {
+        Series target = series.get(currency);
+        if (target == null) {
+            return List.of();
+        }
+        int count = target.count;
+        MappedByteBuffer buffer = target.buffer;
+        int first = upperBound(buffer, count, toEpochMilli(since));
+        List<AverageRateView> ticks = new ArrayList<>(count - first);
+        for (int i = first; i < count; i++) {
+            ticks.add(view(currency, buffer, i));
+        }
+        return ticks;
+    }
+
+    /**
+     * Locates the ticks of a currency within [from, to] as a region of its file.
+     *
+     * @param currency the currency code
+     * @param from     the inclusive lower bound
+     * @param to       the inclusive upper bound
+     * @return the region; empty when the currency has no ticks in the range
+     */
+    public TickRange findRange(String currency, LocalDateTime from, LocalDateTime to) {
+        Series target = series.get(currency);
+        if (target == null) {
+            return new TickRange(currency, null, HEADER_SIZE, 0);
+        }
+        int count = target.count;
+        MappedByteBuffer buffer = target.buffer;
+        int first = upperBound(buffer, count, toEpochMilli(from) - 1);
+        int end = Math.max(first, upperBound(buffer, count, toEpochMilli(to)));
+        return new TickRange(currency, target.file, offset(first), (long) (end - first) * RECORD_SIZE);
+    }
+
+    /**
+     * Copies a region found by findRange to the target, letting the kernel move the pages
+     * when the target is a socket or a file.
+     *
+     * @param range  the region
+     * @param target the destination, e.g. the response body
+     * @return the number of bytes transferred
+     * @throws IOException if the transfer fails, e.g. the client disconnected
+     */
+    public long transferTo(TickRange range, WritableByteChannel target) throws IOException {
+        Series source = series.get(range.currency());
+        if (source == null || range.length() == 0) {
+            return 0;
+        }
+        long position = range.position();
+        long end = range.position() + range.length();
+        while (position < end) {
+            position += source.channel.transferTo(position, end - position, target);
+        }
+        return range.length();
+    }
+
+    /**
+     * Forces and closes every file.
+     */
+    @PreDestroy
+    public void close() {
+        for (Series target : series.values()) {
+            target.force();
+            try {
+                target.channel.close();
+            } catch (IOException e) {
+                log.warn("Closing tick file of currency={} failed: {}", target.currency, e.getMessage());
+            }
+        }
+    }
+
+    private Series create(String currency) {
+        if (!CURRENCY.matcher(currency).matches()) {
+            throw new IllegalArgumentException("Not an ISO 4217 alphabetic code: " + currency);
+        }
+        try {
+            return new Series(currency, directory.resolve(currency + EXTENSION));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the tick file of " + currency, e);
+        }
+    }
+
+    /**
+     * @return the index of the first tick later than epochMilli, or count if there is none
+     */
+    private static int upperBound(MappedByteBuffer buffer, int count, long epochMilli) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(offset(mid)) <= epochMilli) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static AverageRateView view(String currency, MappedByteBuffer buffer, int index) {
+        int offset = offset(index);
+        return new AverageRateView(null, currency,
+                buffer.getLong(offset + Long.BYTES), buffer.getLong(offset + 2 * Long.BYTES),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong(offset)), ZoneOffset.UTC));
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private static long toEpochMilli(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * A contiguous region of a tick file.
+     *
+     * @param currency the currency code
+     * @param file     the tick file, or null if the currency has none
+     * @param position the offset of the first record
+     * @param length   the length in bytes, a multiple of RECORD_SIZE
+     */
+    public record TickRange(String currency, Path file, long position, long length) {
+    }
+
+    /**
+     * The mapped file of one currency. Appends are serialized on the instance; readers take
+     * the count first and then the buffer, so every record below the count they see is
+     * complete in the buffer they read, even while the mapping is being grown.
+     */
+    private final class Series {
+
+        private final String currency;
+        private final Path file;
+        private final FileChannel channel;
+        private volatile MappedByteBuffer buffer;
+        private volatile int count;
+        private int capacity;
+
+        Series(String currency, Path file) throws IOException {
+            this.currency = currency;
+            this.file = file;
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size == 0) {
+                map(initialCapacity);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+                buffer.putLong(COUNT_OFFSET, 0);
+            } else {
+                map((int) Math.min((size - HEADER_SIZE) / RECORD_SIZE, MAX_CAPACITY));
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                    channel.close();
+                    throw new IOException("Not a tick file: " + file);
+                }
+                this.count = (int) buffer.getLong(COUNT_OFFSET);
+            }
+        }
+
+        synchronized boolean append(long epochMilli, long buy, long sell) {
+            int index = count;
+            if (index > 0) {
+                long last = buffer.getLong(offset(index - 1));
+                if (epochMilli < last) {
+                    return false;
+                }
+                if (epochMilli == last) {
+                    int offset = offset(index - 1);
+                    buffer.putLong(offset + Long.BYTES, buy);
+                    buffer.putLong(offset + 2 * Long.BYTES, sell);
+                    return true;
+                }
+            }
+            if (index == capacity) {
+                grow();
+            }
+            int offset = offset(index);
+            buffer.putLong(offset, epochMilli);
+            buffer.putLong(offset + Long.BYTES, buy);
+            buffer.putLong(offset + 2 * Long.BYTES, sell);
+            buffer.putLong(COUNT_OFFSET, index + 1);
+            count = index + 1;
+            return true;
+        }
+
+        synchronized void force() {
+            buffer.force();
+        }
+
+        private void grow() {
+            if (capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("Tick file of " + currency + " is full: " + file);
+            }
+            try {
+                buffer.force();
+                map((int) Math.min(Math.max(2L * capacity, initialCapacity), MAX_CAPACITY));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot grow the tick file of " + currency, e);
+            }
+            log.debug("Tick file of currency={} grown to {} records", currency, capacity);
+        }
+
+        /** Maps (and if needed extends) the file; the previous mapping stays valid for readers. */
+        private void map(int records) throws IOException {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * RECORD_SIZE);
+            capacity = records;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package task.privatbank.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import task.privatbank.model.CandleResolution;
+import task.privatbank.model.RateCandle;
+import task.privatbank.model.RateCandleId;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for reading RateCandle rollups.
+ * <p>
+ * Candles are written by CandleService through a batched native upsert;
+ * range reads are served by the primary key (currency, resolution, bucket_start).
+ */
+@Repository
+public interface RateCandleRepository extends JpaRepository<RateCandle, RateCandleId> {
+
+    /**
+     * Finds the candles of a currency at a resolution whose bucket starts within a range.
+     *
+     * @param currency   The currency code
+     * @param resolution The bucket width
+     * @param from       The inclusive lower bound of the bucket start
+     * @param to         The inclusive upper bound of the bucket start
+     * @return List of RateCandle records ordered ascending by bucket start
+     */
+    List<RateCandle> findByCurrencyAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+            String currency, CandleResolution resolution, LocalDateTime from, LocalDateTime to);
+}
@@ -1,56 +1,162 @@
 package task.privatbank.scheduler;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.provider.ProviderExecutor;
+import task.privatbank.provider.RateProvider;
 import task.privatbank.service.ExchangeRateService;
+import task.privatbank.service.WriteBehindQueue;
 import task.privatbank.dto.CurrencyRateDTO;
 
+import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Scheduler that periodically (every hour) updates average currency rates.
+ * Polling engine that keeps provider snapshots fresh and periodically turns them into averages.
  * <p>
- * Uses a ReentrantLock to prevent overlapping executions.
+ * Every provider is polled on its own cadence ("exchange.providers.&lt;name&gt;.poll.*"):
+ * its interval, jitter and clock alignment. A poll is non-blocking and only refreshes the
+ * provider's snapshot. Averages are computed on a separate cadence
+ * ("exchange.ingestion.aggregate-*") from the latest fresh snapshot of every provider.
+ * <p>
+ * Each task has its own in-flight flag: a run that is still busy causes the next trigger of
+ * that task to be skipped instead of queueing behind it, and never delays other tasks.
+ * <p>
+ * With the write-behind queue enabled the aggregation only computes the averages and hands
+ * them to the queue, so its run time does not depend on the database.
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ExchangeRateScheduler {
 
+    private static final String AGGREGATION_TASK = "aggregation";
+
     @Qualifier("exchangeRateService")
     private final ExchangeRateService exchangeRateService;
-    private final ReentrantLock lock = new ReentrantLock();
+    private final List<RateProvider> rateProviders;
+    private final ProviderExecutor providerExecutor;
+    private final ExchangeProperties exchangeProperties;
+    private final TaskScheduler taskScheduler;
+    private final ObjectProvider<WriteBehindQueue> writeBehindQueue;
+
+    private final Map<String, AtomicBoolean> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+    private volatile boolean stopped;
 
     /**
-     * Scheduled method that runs every hour (3600000 ms).
-     * Fetches rates from PrivatBank and MonoBank, then calculates
-     * and saves the average rates for USD and EUR.
+     * Starts polling every provider right away and schedules the first aggregation
+     * once the providers had one cycle deadline to answer.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Instant now = Instant.now();
+        for (RateProvider provider : rateProviders) {
+            ExchangeProperties.Poll poll = exchangeProperties.getProvider(provider.getName()).getPoll();
+            PollingSchedule schedule = new PollingSchedule(poll.getInterval(), poll.getJitter(), poll.isAlign());
+            log.info("Polling provider={} every {} (jitter={}, aligned={})",
+                    provider.getName(), poll.getInterval(), poll.getJitter(), poll.isAlign());
+            schedule(provider.getName(), () -> pollProvider(provider), schedule, now);
+        }
+
+        ExchangeProperties.Ingestion ingestion = exchangeProperties.getIngestion();
+        PollingSchedule aggregation = new PollingSchedule(
+                ingestion.getAggregateInterval(), ingestion.getAggregateJitter(), ingestion.isAggregateAlign());
+        log.info("Aggregating average rates every {} for currencies={}",
+                ingestion.getAggregateInterval(), ingestion.getCurrencies());
+        schedule(AGGREGATION_TASK, this::updateAverageRates, aggregation, now.plus(ingestion.getDeadline()));
+    }
+
+    /**
+     * Cancels all pending triggers on shutdown.
+     */
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        scheduled.values().forEach(future -> future.cancel(false));
+    }
+
+    /**
+     * Polls a single provider; the result lands in its last-known-good snapshot.
+     * Skipped if the previous poll of the same provider has not finished yet.
+     *
+     * @param provider the provider to poll
+     */
+    public void pollProvider(RateProvider provider) {
+        String name = provider.getName();
+        AtomicBoolean running = inFlight.computeIfAbsent(name, key -> new AtomicBoolean());
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Previous poll of provider={} is still running, skipping this one.", name);
+            return;
+        }
+        providerExecutor.execute(provider, exchangeProperties.getIngestion().getDeadline())
+                .doFinally(signal -> running.set(false))
+                .subscribe(
+                        rates -> log.debug("Provider {} polled, {} rates received.", name, rates.size()),
+                        e -> log.warn("Polling provider {} failed: {}", name, e.toString()));
+    }
+
+    /**
+     * Computes and saves, or queues for writing, the average rates of all tracked currencies
+     * from the latest fresh snapshot of every provider.
      */
-    @Scheduled(fixedRate = 3600000)
     public void updateAverageRates() {
         log.info("Scheduler triggered to update average rates.");
-        if (lock.tryLock()) {
-            try {
-                log.debug("Acquired lock for scheduled task.");
-                List<CurrencyRateDTO> privatRates = exchangeRateService.getPrivatBankRates();
-                List<CurrencyRateDTO> monoRates = exchangeRateService.getMonoBankRates();
+        AtomicBoolean running = inFlight.computeIfAbsent(AGGREGATION_TASK, key -> new AtomicBoolean());
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Scheduled task is already running, skipping execution.");
+            return;
+        }
+        try {
+            Map<String, List<CurrencyRateDTO>> rates = exchangeRateService.getLatestProviderRates();
+            if (rates.isEmpty()) {
+                log.warn("No provider has a fresh snapshot, skipping update.");
+                return;
+            }
+            log.info("Rates taken from providers: {}", rates.keySet());
+
+            WriteBehindQueue queue = writeBehindQueue.getIfAvailable();
+            if (queue != null) {
+                queue.offer(exchangeRateService.computeAverages(rates.values(),
+                        exchangeRateService.getTrackedCurrencies(rates.values())));
+            } else {
+                exchangeRateService.saveAverageRates(rates.values(),
+                        exchangeRateService.getTrackedCurrencies(rates.values()));
+            }
 
-                exchangeRateService.saveAverageRate(privatRates, monoRates, "USD");
-                exchangeRateService.saveAverageRate(privatRates, monoRates, "EUR");
+            log.info("Average currency rates successfully updated.");
+        } catch (Exception e) {
+            log.error("Error during scheduled task execution: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
 
-                log.info("Average currency rates successfully updated.");
-            } catch (Exception e) {
-                log.error("Error during scheduled task execution: {}", e.getMessage(), e);
+    /**
+     * Schedules a run of the task at the given time; every run schedules its successor.
+     */
+    private void schedule(String task, Runnable action, PollingSchedule schedule, Instant at) {
+        if (stopped) {
+            return;
+        }
+        scheduled.put(task, taskScheduler.schedule(() -> {
+            try {
+                action.run();
             } finally {
-                lock.unlock();
-                log.debug("Lock released after scheduled task.");
+                schedule(task, action, schedule, schedule.next(Instant.now()));
             }
-        } else {
-            log.warn("Scheduled task is already running, skipping execution.");
-        }
+        }, at));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package task.privatbank.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import task.privatbank.config.ExchangeProperties;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly range partitions of the average_rates table.
+ * <p>
+ * Runs once at startup and then on "exchange.storage.maintenance-cron":
+ * - creates the partitions of the current and the next "premake-months" months, so rows
+ *   never land in the default partition;
+ * - drops whole partitions whose month lies entirely before now minus "retention",
+ *   which replaces mass DELETEs and leaves no dead tuples to vacuum.
+ * <p>
+ * Partitions are named average_rates_pYYYYMM, as in db/migration/V3.
+ */
+@Component
+@ConditionalOnProperty(prefix = "exchange.storage", name = "partition-maintenance", matchIfMissing = true)
+@Slf4j
+public class PartitionMaintenanceJob {
+
+    static final String TABLE = "average_rates";
+
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String LIST_PARTITIONS_SQL = """
+            SELECT child.relname
+            FROM pg_inherits i
+            JOIN pg_class child ON child.oid = i.inhrelid
+            JOIN pg_class parent ON parent.oid = i.inhparent
+            WHERE parent.relname = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExchangeProperties exchangeProperties;
+    private final Clock clock;
+
+    @Autowired
+    public PartitionMaintenanceJob(JdbcTemplate jdbcTemplate, ExchangeProperties exchangeProperties) {
+        this(jdbcTemplate, exchangeProperties, Clock.systemDefaultZone());
+    }
+
+    PartitionMaintenanceJob(JdbcTemplate jdbcTemplate, ExchangeProperties exchangeProperties, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.exchangeProperties = exchangeProperties;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates the upcoming partitions and drops the expired ones.
+     * Failures are logged and retried on the next run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${exchange.storage.maintenance-cron:0 15 0 * * *}")
+    public void maintain() {
+        try {
+            List<YearMonth> existing = listPartitions();
+            createUpcomingPartitions(existing);
+            dropExpiredPartitions(existing);
+        } catch (DataAccessException e) {
+            log.error("Partition maintenance of {} failed: {}", TABLE, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the months of the existing monthly partitions, in catalog order
+     */
+    List<YearMonth> listPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class, TABLE)) {
+            if (name.startsWith(PARTITION_PREFIX)) {
+                try {
+                    months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), SUFFIX));
+                } catch (DateTimeParseException e) {
+                    log.debug("Ignoring partition {} that does not follow the monthly naming", name);
+                }
+            }
+        }
+        return months;
+    }
+
+    private void createUpcomingPartitions(List<YearMonth> existing) {
+        YearMonth current = YearMonth.now(clock);
+        int premakeMonths = exchangeProperties.getStorage().getPremakeMonths();
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!existing.contains(month)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                        + " PARTITION OF " + TABLE
+                        + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+                log.info("Created partition {}", partitionName(month));
+            }
+        }
+    }
+
+    private void dropExpiredPartitions(List<YearMonth> existing) {
+        Period retention = exchangeProperties.getStorage().getRetention();
+        if (retention.isZero()) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now(clock).minus(retention);
+        for (YearMonth month : existing) {
+            if (!month.plusMonths(1).atDay(1).isAfter(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+                log.info("Dropped partition {} (older than retention {})", partitionName(month), retention);
+            }
+        }
+    }
+
+    /**
+     * @param month the month of the partition
+     * @return the partition table name, e.g. average_rates_p202401
+     */
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(SUFFIX);
+    }
+}
@@ -0,0 +1,55 @@
+package task.privatbank.scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+/**
+ * Computes the trigger times of a periodic task.
+ * <p>
+ * Aligned schedules fire on wall-clock multiples of the interval counted from the epoch
+ * (e.g., at :00, :15, :30, :45 for a 15-minute interval), so runs do not drift with
+ * execution time. Unaligned schedules fire one interval after the previous run.
+ * A random jitter in [0, jitter) is added to every trigger to spread load.
+ */
+public class PollingSchedule {
+
+    private final long intervalMillis;
+    private final long jitterMillis;
+    private final boolean aligned;
+    private final RandomGenerator random;
+
+    public PollingSchedule(Duration interval, Duration jitter, boolean aligned) {
+        this(interval, jitter, aligned, new Random());
+    }
+
+    PollingSchedule(Duration interval, Duration jitter, boolean aligned, RandomGenerator random) {
+        if (interval.isNegative() || interval.isZero() || jitter.isNegative() || jitter.compareTo(interval) >= 0) {
+            throw new IllegalArgumentException(
+                    "Interval must be positive and jitter shorter than the interval, got " + interval + "/" + jitter);
+        }
+        this.intervalMillis = interval.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        this.aligned = aligned;
+        this.random = random;
+    }
+
+    /**
+     * Returns the next trigger time after the given instant.
+     *
+     * @param now the current time, usually the end of the previous run
+     * @return the next trigger time, jitter included
+     */
+    public Instant next(Instant now) {
+        long millis = now.toEpochMilli();
+        long base = aligned
+                ? Math.floorDiv(millis, intervalMillis) * intervalMillis + intervalMillis
+                : millis + intervalMillis;
+        return Instant.ofEpochMilli(base + (jitterMillis == 0 ? 0 : random.nextLong(jitterMillis)));
+    }
+
+    public Duration getInterval() {
+        return Duration.ofMillis(intervalMillis);
+    }
+}
@@ -0,0 +1,338 @@
+package task.privatbank.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Component;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.model.CandleResolution;
+import task.privatbank.repository.AverageRateRepository;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntSupplier;
+
+/**
+ * Deletes rows older than their retention policy ("exchange.storage.purge.*"):
+ * - "averages":         the stored averages in average_rates; cut off at the start of the day, so whole runs go;
+ * - "currency-rates":   the per-source currency_rates rows;
+ * - "candles.<resolution>": the rate_candles of one resolution, e.g. minute candles after 30 days
+ *                       while hourly and daily candles are kept forever.
+ * <p>
+ * Rows are deleted in chunks of "chunk-size", each its own statement and transaction, so no
+ * delete holds row locks for long or produces a large burst of WAL. average_rates and rate_candles
+ * are purged per currency through their (currency, timestamp) and primary key indexes, for the
+ * currencies actually stored in the table (read with a loose index scan at the start of a run);
+ * currency_rates through its timestamp index. Throttling:
+ * - "chunk-pause" is slept after every chunk that deleted rows;
+ * - while the slowest standby in pg_stat_replication replays more than "max-replication-lag"
+ *   behind, no further chunk is sent (reading the lag needs the pg_monitor role; without it the lag reads as 0);
+ * - a run stops after "max-run-time"; the next run continues where it stopped.
+ * A run is complete only once the last chunk of every step came back short; a run stopped
+ * earlier is logged as partial and leaves the progress below 1, as a backlog remains.
+ * <p>
+ * The job runs on "cron" on its own single thread, so its pauses never hold up the shared
+ * scheduler of the polling and aggregation. Partitions of average_rates are only dropped by
+ * PartitionMaintenanceJob on "exchange.storage.retention"; this job deletes rows only.
+ * <p>
+ * Metrics: "exchange.retention.deleted" (rows, tagged by table and resolution),
+ * "exchange.retention.chunk" (duration of one chunk), "exchange.retention.throttled" (waits for
+ * the replicas), "exchange.retention.progress" (share of the current run's steps done, 0..1) and
+ * "exchange.retention.throughput" (rows per second of the last run).
+ */
+@Component
+@ConditionalOnProperty(prefix = "exchange.storage.purge", name = "enabled")
+@Slf4j
+public class RetentionJob {
+
+    static final String RAW = "raw";
+
+    private static final String DELETE_AVERAGES_SQL = """
+            DELETE FROM average_rates
+            WHERE currency = ? AND (id, timestamp) IN (
+                SELECT id, timestamp
+                FROM average_rates
+                WHERE currency = ? AND timestamp < ?
+                ORDER BY timestamp
+                LIMIT ?)
+            """;
+
+    private static final String DELETE_CURRENCY_RATES_SQL = """
+            DELETE FROM currency_rates
+            WHERE id IN (
+                SELECT id
+                FROM currency_rates
+                WHERE timestamp < ?
+                ORDER BY timestamp
+                LIMIT ?)
+            """;
+
+    private static final String DELETE_CANDLES_SQL = """
+            DELETE FROM rate_candles
+            WHERE currency = ? AND resolution = ? AND bucket_start IN (
+                SELECT bucket_start
+                FROM rate_candles
+                WHERE currency = ? AND resolution = ? AND bucket_start < ?
+                ORDER BY bucket_start
+                LIMIT ?)
+            """;
+
+    /** Distinct currencies of a table through its index on the leading currency column. */
+    private static final String DISTINCT_CURRENCIES_SQL = """
+            WITH RECURSIVE currencies (currency) AS (
+                SELECT MIN(currency) FROM %1$s
+                UNION ALL
+                SELECT (SELECT MIN(currency) FROM %1$s WHERE currency > c.currency)
+                FROM currencies c
+                WHERE c.currency IS NOT NULL)
+            SELECT currency FROM currencies WHERE currency IS NOT NULL
+            """;
+
+    private static final String REPLICATION_LAG_SQL =
+            "SELECT COALESCE(MAX(EXTRACT(EPOCH FROM replay_lag)), 0) FROM pg_stat_replication";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExchangeProperties.Purge settings;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Timer chunkTimer;
+    private final Counter throttled;
+
+    private volatile double progress = 1.0;
+    private volatile double throughput;
+
+    /** The job's own thread; started once the application is ready. */
+    private ThreadPoolTaskScheduler scheduler;
+
+    @Autowired
+    public RetentionJob(JdbcTemplate jdbcTemplate, ExchangeProperties exchangeProperties, MeterRegistry meterRegistry) {
+        this(jdbcTemplate, exchangeProperties, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    RetentionJob(JdbcTemplate jdbcTemplate, ExchangeProperties exchangeProperties,
+                 MeterRegistry meterRegistry, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = exchangeProperties.getStorage().getPurge();
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.chunkTimer = Timer.builder("exchange.retention.chunk")
+                .description("Duration of one chunked delete").register(meterRegistry);
+        this.throttled = Counter.builder("exchange.retention.throttled")
+                .description("Waits for lagging replicas before a chunk").register(meterRegistry);
+        Gauge.builder("exchange.retention.progress", this, job -> job.progress)
+                .description("Share of the steps of the current retention run that are done")
+                .register(meterRegistry);
+        Gauge.builder("exchange.retention.throughput", this, job -> job.throughput)
+                .description("Rows deleted per second by the last retention run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the runs on "cron" on the job's own thread.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("retention-");
+        scheduler.initialize();
+        scheduler.schedule(this::purge, new CronTrigger(settings.getCron()));
+        log.info("Retention job scheduled on cron={}", settings.getCron());
+    }
+
+    /**
+     * Interrupts a running purge on shutdown; its remaining rows are deleted by the next run.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Deletes the expired rows of every data set with a retention policy.
+     * Failures are logged and the remaining rows are deleted by the next run.
+     */
+    public void purge() {
+        long started = System.nanoTime();
+        long deadline = started + settings.getMaxRunTime().toNanos();
+        long deleted = 0;
+        boolean complete = false;
+        try {
+            List<Step> steps = plan(LocalDateTime.now(clock));
+            progress = steps.isEmpty() ? 1.0 : 0.0;
+            int done = 0;
+            while (done < steps.size() && System.nanoTime() - deadline < 0) {
+                Drained drained = drain(steps.get(done), deadline);
+                deleted += drained.deleted();
+                if (!drained.complete()) {
+                    break;
+                }
+                done++;
+                progress = done / (double) steps.size();
+            }
+            complete = done == steps.size();
+            if (!complete) {
+                log.info("Retention run stopped after {} with {} of {} steps done; the next run continues",
+                        settings.getMaxRunTime(), done, steps.size());
+            }
+        } catch (DataAccessException e) {
+            log.error("Retention run failed: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            throughput = seconds > 0 ? deleted / seconds : 0.0;
+            if (deleted > 0 || !complete) {
+                log.info("Retention run {}: deleted {} rows in {} s", complete ? "complete" : "partial",
+                        deleted, String.format(Locale.ROOT, "%.1f", seconds));
+            }
+        }
+    }
+
+    /**
+     * @param now the current time
+     * @return one step per data set with a policy and, for the per-currency tables, per stored currency
+     */
+    List<Step> plan(LocalDateTime now) {
+        List<Step> steps = new ArrayList<>();
+        int chunkSize = settings.getChunkSize();
+        if (isSet(settings.getAverages())) {
+            Timestamp cutoff = Timestamp.valueOf(AverageRateRepository.runStartBound(now.minus(settings.getAverages())));
+            for (String code : storedCurrencies("average_rates")) {
+                steps.add(new Step(deletedCounter("average_rates", RAW), () -> jdbcTemplate.update(
+                        DELETE_AVERAGES_SQL, code, code, cutoff, chunkSize)));
+            }
+        }
+        if (isSet(settings.getCurrencyRates())) {
+            Timestamp cutoff = Timestamp.valueOf(now.minus(settings.getCurrencyRates()));
+            steps.add(new Step(deletedCounter("currency_rates", RAW), () -> jdbcTemplate.update(
+                    DELETE_CURRENCY_RATES_SQL, cutoff, chunkSize)));
+        }
+        List<String> candleCurrencies = null;
+        for (CandleResolution resolution : CandleResolution.values()) {
+            Duration retention = settings.getCandles().get(resolution);
+            if (!isSet(retention)) {
+                continue;
+            }
+            if (candleCurrencies == null) {
+                candleCurrencies = storedCurrencies("rate_candles");
+            }
+            Timestamp cutoff = Timestamp.valueOf(resolution.bucketStart(now.minus(retention)));
+            Counter counter = deletedCounter("rate_candles", resolution.name().toLowerCase(Locale.ROOT));
+            for (String code : candleCurrencies) {
+                steps.add(new Step(counter, () -> jdbcTemplate.update(
+                        DELETE_CANDLES_SQL, code, resolution.name(), code, resolution.name(), cutoff, chunkSize)));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * @param table a table with an index led by its currency column
+     * @return the currency codes stored in the table, in code order
+     */
+    private List<String> storedCurrencies(String table) {
+        return jdbcTemplate.queryForList(DISTINCT_CURRENCIES_SQL.formatted(table), String.class);
+    }
+
+    /**
+     * Deletes chunks of one step until a chunk comes back short or the run is out of time.
+     * Only chunks that deleted rows are followed by the pause and the replication lag check.
+     *
+     * @return the rows deleted, and whether the step is done: its last chunk came back short
+     */
+    private Drained drain(Step step, long deadline) throws InterruptedException {
+        long deleted = 0;
+        int rows;
+        do {
+            rows = chunkTimer.record(step.deleteChunk());
+            deleted += rows;
+            if (rows > 0) {
+                step.deleted().increment(rows);
+                sleep(settings.getChunkPause());
+                if (!awaitReplicas(deadline)) {
+                    break;
+                }
+            }
+        } while (rows >= settings.getChunkSize() && System.nanoTime() - deadline < 0);
+        return new Drained(deleted, rows < settings.getChunkSize());
+    }
+
+    /**
+     * Waits while the replicas replay further behind than "max-replication-lag".
+     *
+     * @return false if the run ran out of time while waiting
+     */
+    private boolean awaitReplicas(long deadline) throws InterruptedException {
+        Duration maxLag = settings.getMaxReplicationLag();
+        if (maxLag.isZero()) {
+            return true;
+        }
+        while (true) {
+            Double lagSeconds = jdbcTemplate.queryForObject(REPLICATION_LAG_SQL, Double.class);
+            if (lagSeconds == null || lagSeconds * 1_000 <= maxLag.toMillis()) {
+                return true;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            throttled.increment();
+            log.debug("Replicas lag {} s behind, holding back the retention", lagSeconds);
+            sleep(maxLag);
+        }
+    }
+
+    private Counter deletedCounter(String table, String resolution) {
+        return Counter.builder("exchange.retention.deleted")
+                .tag("table", table)
+                .tag("resolution", resolution)
+                .description("Rows deleted by the retention job")
+                .register(meterRegistry);
+    }
+
+    private static boolean isSet(Duration retention) {
+        return retention != null && !retention.isZero() && !retention.isNegative();
+    }
+
+    private static void sleep(Duration pause) throws InterruptedException {
+        if (!pause.isZero()) {
+            Thread.sleep(pause.toMillis());
+        }
+    }
+
+    /**
+     * The expired rows of one table, resolution and currency.
+     *
+     * @param deleted     the counter of the deleted rows
+     * @param deleteChunk deletes up to "chunk-size" expired rows and returns their number
+     */
+    record Step(Counter deleted, IntSupplier deleteChunk) {
+    }
+
+    /**
+     * The outcome of draining one step.
+     *
+     * @param deleted  the rows deleted
+     * @param complete true if the last chunk came back short, false if rows may be left
+     */
+    private record Drained(long deleted, boolean complete) {
+    }
+}
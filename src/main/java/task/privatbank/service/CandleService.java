@@ -0,0 +1,214 @@
+package task.privatbank.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.model.AverageRate;
+import task.privatbank.model.CandleResolution;
+import task.privatbank.model.RateCandle;
+import task.privatbank.repository.RateCandleRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Service that maintains and reads the OHLC rollups (RateCandle) of the stored averages.
+ * <p>
+ * Candles are derived state: whenever averages are written, the MINUTE buckets containing them
+ * are recomputed from average_rates, then their HOUR buckets are rolled up from the MINUTE
+ * candles and their DAY buckets from the HOUR candles, each stored with INSERT ... ON CONFLICT
+ * DO UPDATE in one JDBC batch per resolution. Only MINUTE reads average_rates, so a save costs
+ * at most 60 + 24 candle rows on top of the rows of its minute, however many the day holds.
+ * Recomputing instead of folding the new average into the old candle makes the maintenance
+ * idempotent: a retried, replayed or rewritten average yields the same candle, and a replaced
+ * bucket value leaves no stale high or low behind.
+ * <p>
+ * A run-length row (timestamp to validTo) counts once for every aggregation bucket it covers
+ * within the candle, so tick_count, open_at and close_at match one row per aggregation.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CandleService {
+
+    /** Upper bound of candles returned by one range read. */
+    public static final int MAX_CANDLES = 1000;
+
+    private static final CandleResolution[] RESOLUTIONS = CandleResolution.values();
+
+    /** Timestamps are stored with microsecond precision: the last instant of a bucket is its end minus 1 µs. */
+    private static final Duration LAST_INSTANT_OFFSET = Duration.ofNanos(1_000);
+
+    /**
+     * Recomputes one MINUTE candle from the rows overlapping its bucket. Runs never cross midnight,
+     * so the start of the bucket's day bounds the timestamp for partition pruning. An aggregation
+     * point of a row is timestamp + k * interval up to validTo; first_point and last_point are the
+     * first and the last k inside the bucket. Parameters, in order: bucket start, interval seconds,
+     * last instant of the bucket, interval seconds, currency, day start, last instant of the bucket,
+     * bucket start, resolution, bucket start, interval seconds, interval seconds.
+     */
+    private static final String RECOMPUTE_SQL = """
+            WITH points AS (
+                SELECT currency, buy_rate, sell_rate, timestamp,
+                       CEIL(EXTRACT(EPOCH FROM GREATEST(timestamp, ?) - timestamp) / ?)::bigint AS first_point,
+                       FLOOR(EXTRACT(EPOCH FROM LEAST(valid_to, ?) - timestamp) / ?)::bigint AS last_point
+                FROM average_rates
+                WHERE currency = ? AND timestamp >= ? AND timestamp <= ? AND valid_to >= ?
+            )
+            INSERT INTO rate_candles (currency, resolution, bucket_start,
+                                      open_buy, high_buy, low_buy, close_buy,
+                                      open_sell, high_sell, low_sell, close_sell,
+                                      open_at, close_at, tick_count)
+            SELECT currency, ?, ?,
+                   (array_agg(buy_rate ORDER BY timestamp))[1], MAX(buy_rate), MIN(buy_rate),
+                   (array_agg(buy_rate ORDER BY timestamp DESC))[1],
+                   (array_agg(sell_rate ORDER BY timestamp))[1], MAX(sell_rate), MIN(sell_rate),
+                   (array_agg(sell_rate ORDER BY timestamp DESC))[1],
+                   MIN(timestamp + make_interval(secs => first_point * ?)),
+                   MAX(timestamp + make_interval(secs => last_point * ?)),
+                   SUM(last_point - first_point + 1)
+            FROM points
+            WHERE last_point >= first_point
+            GROUP BY currency
+            ON CONFLICT (currency, resolution, bucket_start) DO UPDATE SET
+                open_buy   = EXCLUDED.open_buy,
+                high_buy   = EXCLUDED.high_buy,
+                low_buy    = EXCLUDED.low_buy,
+                close_buy  = EXCLUDED.close_buy,
+                open_sell  = EXCLUDED.open_sell,
+                high_sell  = EXCLUDED.high_sell,
+                low_sell   = EXCLUDED.low_sell,
+                close_sell = EXCLUDED.close_sell,
+                open_at    = EXCLUDED.open_at,
+                close_at   = EXCLUDED.close_at,
+                tick_count = EXCLUDED.tick_count
+            """;
+
+    /**
+     * Rolls one candle up from the candles of the next finer resolution inside its bucket.
+     * Parameters, in order: resolution, bucket start, currency, finer resolution, bucket start, bucket end.
+     */
+    private static final String ROLLUP_SQL = """
+            INSERT INTO rate_candles (currency, resolution, bucket_start,
+                                      open_buy, high_buy, low_buy, close_buy,
+                                      open_sell, high_sell, low_sell, close_sell,
+                                      open_at, close_at, tick_count)
+            SELECT currency, ?, ?,
+                   (array_agg(open_buy ORDER BY bucket_start))[1], MAX(high_buy), MIN(low_buy),
+                   (array_agg(close_buy ORDER BY bucket_start DESC))[1],
+                   (array_agg(open_sell ORDER BY bucket_start))[1], MAX(high_sell), MIN(low_sell),
+                   (array_agg(close_sell ORDER BY bucket_start DESC))[1],
+                   MIN(open_at), MAX(close_at), SUM(tick_count)
+            FROM rate_candles
+            WHERE currency = ? AND resolution = ? AND bucket_start >= ? AND bucket_start < ?
+            GROUP BY currency
+            ON CONFLICT (currency, resolution, bucket_start) DO UPDATE SET
+                open_buy   = EXCLUDED.open_buy,
+                high_buy   = EXCLUDED.high_buy,
+                low_buy    = EXCLUDED.low_buy,
+                close_buy  = EXCLUDED.close_buy,
+                open_sell  = EXCLUDED.open_sell,
+                high_sell  = EXCLUDED.high_sell,
+                low_sell   = EXCLUDED.low_sell,
+                close_sell = EXCLUDED.close_sell,
+                open_at    = EXCLUDED.open_at,
+                close_at   = EXCLUDED.close_at,
+                tick_count = EXCLUDED.tick_count
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final RateCandleRepository rateCandleRepository;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final ExchangeProperties exchangeProperties;
+
+    /**
+     * Recomputes the candles of every resolution containing the given averages, finest first:
+     * MINUTE from average_rates, every coarser resolution from the one before it.
+     * Joins the caller's transaction, so candles and averages are committed together;
+     * callers must hold the locks of the currencies.
+     *
+     * @param rates the averages just written, each at the aggregation bucket it was observed in
+     */
+    @Transactional
+    public void record(Collection<AverageRate> rates) {
+        if (rates.isEmpty()) {
+            return;
+        }
+        BigDecimal intervalSeconds = BigDecimal.valueOf(
+                exchangeProperties.getIngestion().getAggregateInterval().toNanos(), 9);
+        int recomputed = 0;
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            CandleResolution resolution = RESOLUTIONS[i];
+            // several averages in one bucket recompute it once
+            Set<Bucket> buckets = new LinkedHashSet<>();
+            for (AverageRate rate : rates) {
+                buckets.add(new Bucket(rate.getCurrency(), resolution.bucketStart(rate.getTimestamp())));
+            }
+            List<Object[]> batch = new ArrayList<>(buckets.size());
+            for (Bucket bucket : buckets) {
+                LocalDateTime start = bucket.start();
+                LocalDateTime end = start.plus(resolution.getDuration());
+                if (i == 0) {
+                    LocalDateTime last = end.minus(LAST_INSTANT_OFFSET);
+                    batch.add(new Object[]{
+                            start, intervalSeconds, last, intervalSeconds,
+                            bucket.currency(), start.toLocalDate().atStartOfDay(), last, start,
+                            resolution.name(), start, intervalSeconds, intervalSeconds
+                    });
+                } else {
+                    batch.add(new Object[]{
+                            resolution.name(), start, bucket.currency(), RESOLUTIONS[i - 1].name(), start, end
+                    });
+                }
+            }
+            jdbcTemplate.batchUpdate(i == 0 ? RECOMPUTE_SQL : ROLLUP_SQL, batch);
+            recomputed += batch.size();
+        }
+        log.debug("Candles recomputed for {} averages: {} buckets", rates.size(), recomputed);
+    }
+
+    /**
+     * Returns the candles of a currency whose bucket starts within [from, to].
+     *
+     * @param currency   an ISO 4217 alphabetic code known to the CurrencyRegistry
+     * @param resolution the bucket width
+     * @param from       the inclusive lower bound
+     * @param to         the inclusive upper bound
+     * @return the candles ordered by bucket start
+     * @throws IllegalArgumentException if the range is inverted or spans more than MAX_CANDLES buckets
+     */
+    public List<RateCandle> getCandles(String currency, CandleResolution resolution,
+                                       LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        LocalDateTime firstBucket = resolution.bucketStart(from);
+        long buckets = Duration.between(firstBucket, to).dividedBy(resolution.getDuration()) + 1;
+        if (buckets > MAX_CANDLES) {
+            throw new IllegalArgumentException("Range spans " + buckets + " " + resolution
+                    + " candles, at most " + MAX_CANDLES + " are allowed");
+        }
+        log.debug("Retrieving {} candles for currency={} from={} to={}", resolution, currency, from, to);
+        return rateCandleRepository.findByCurrencyAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+                currencyRegistry.require(currency).alphaCode(), resolution, firstBucket, to);
+    }
+
+    /**
+     * A candle of the resolution being recomputed.
+     */
+    private record Bucket(String currency, LocalDateTime start) {
+    }
+}
@@ -1,226 +1,701 @@
 package task.privatbank.service;
 
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.currency.CurrencyCode;
+import task.privatbank.currency.CurrencyLocks;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.currency.FixedPoint;
+import task.privatbank.dto.AverageRateView;
 import task.privatbank.dto.CurrencyRateDTO;
-import task.privatbank.dto.MonoBankRateDTO;
+import task.privatbank.dto.RateChangeView;
 import task.privatbank.model.AverageRate;
+import task.privatbank.provider.ProviderExecutor;
+import task.privatbank.provider.RateProvider;
+import task.privatbank.provider.SnapshotCache;
 import task.privatbank.repository.AverageRateRepository;
+import task.privatbank.repository.MappedTickStore;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
- * Service that fetches currency rates from external APIs (PrivatBank, MonoBank),
- * calculates average rates, and stores them in the database.
+ * Service that fetches currency rates from all registered RateProviders
+ * (PrivatBank, MonoBank, ...), calculates average rates, and stores them in the database.
  * <p>
  * Also provides methods to retrieve hourly dynamics and last-hour changes.
+ * When the MappedTickStore is enabled, committed averages are also appended to it and the
+ * latest-rate reads are served from it, falling back to the database while it holds too
+ * few ticks (e.g. right after it was enabled).
+ * <p>
+ * With "exchange.storage.run-length" an average equal to the latest stored row of its currency
+ * extends that row's validTo instead of adding a row, so only rate changes are stored. The row is
+ * read and conditionally extended in the write's transaction, so restarts and other instances
+ * continue the same runs. A run ends at midnight.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExchangeRateService {
 
-    private final WebClient webClient = WebClient.builder().build();
+    /** Ingestion currency list entry that tracks every quoted currency. */
+    private static final String ALL_CURRENCIES = "*";
 
     /**
-     * Lock object for synchronization during average rate saving.
+     * Per-currency locks serializing the writes of one currency; different currencies
+     * are saved in parallel.
      */
-    private final Object lock = new Object();
+    private final CurrencyLocks currencyLocks = new CurrencyLocks();
 
     @Qualifier("averageRateRepository")
     private final AverageRateRepository averageRateRepository;
 
     /**
-     * Saves the average rate for the specified currency,
-     * computed from PrivatBank and MonoBank data.
+     * All registered rate providers, discovered as Spring beans.
+     */
+    private final List<RateProvider> rateProviders;
+
+    private final ProviderExecutor providerExecutor;
+
+    private final SnapshotCache snapshotCache;
+
+    private final ExchangeProperties exchangeProperties;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final CandleService candleService;
+
+    /** The optional tick store; absent unless "exchange.storage.tick-store.enabled" is set. */
+    private final ObjectProvider<MappedTickStore> tickStore;
+
+    /**
+     * Runs the writes; the transaction commits before the currency locks are released,
+     * so the next writer of a currency always sees the previous one's rows.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Saves the average rate for the specified currency, computed from
+     * the rates of every provider that answered in this cycle.
+     * <p>
+     * Only providers that actually quote the currency take part in the average.
+     * If fewer providers than the configured quorum quote it, nothing is saved.
+     * The average is keyed by the start of the current aggregation bucket, so saving it
+     * again in the same bucket overwrites it. It is also folded into its candles.
      *
-     * @param privatRates list of CurrencyRateDTO from PrivatBank
-     * @param monoRates   list of CurrencyRateDTO from MonoBank
-     * @param currency    "USD" or "EUR"
+     * @param providerRates rate lists, one per provider that answered
+     * @param currency      an ISO 4217 alphabetic code known to the CurrencyRegistry
      */
-    @CacheEvict(value = {"lastRate", "hourlyRates", "dailyRates"}, key = "#currency")
-    @Transactional
-    public void saveAverageRate(List<CurrencyRateDTO> privatRates, List<CurrencyRateDTO> monoRates, String currency) {
+    @CacheEvict(value = {"lastRate", "hourlyRates", "validRates", "dailyChanges", "allDailyChanges"},
+            allEntries = true)
+    public void saveAverageRate(Collection<List<CurrencyRateDTO>> providerRates, String currency) {
         log.info("Saving average rate for currency={}", currency);
-        synchronized (lock) {
-            log.debug("Entered synchronized block for currency={}", currency);
+        CurrencyCode code = currencyRegistry.require(currency);
+        try (CurrencyLocks.Held held = currencyLocks.lock(code)) {
+            log.debug("Acquired the lock of currency={}", currency);
+
+            computeAverage(indexByCurrency(providerRates), code, currentBucket())
+                    .ifPresent(rate -> {
+                        persist(List.of(rate), true);
+                        log.info("Average rate saved: currency={}, buyRate={}, sellRate={}", currency,
+                                FixedPoint.format(rate.getBuyRate()), FixedPoint.format(rate.getSellRate()));
+                    });
+        }
+    }
+
+    /**
+     * Computes and saves the averages of all given currencies in one pass and one transaction.
+     * <p>
+     * Each provider list is indexed by numeric currency code once, so the cost of a cycle grows
+     * with the number of quotes rather than with quotes times currencies, and every lookup is an
+     * array access. All averages share the start of the current aggregation bucket as their
+     * timestamp and are written with one batched upsert keyed by (currency, timestamp), so a
+     * retried or overlapping cycle overwrites its averages instead of duplicating them;
+     * the candles of the rows that actually changed are recomputed in the same transaction.
+     * Only the write holds the locks of the saved currencies.
+     *
+     * @param providerRates rate lists, one per provider that answered
+     * @param currencies    the currencies to compute, see {@link #getTrackedCurrencies}
+     * @return the saved averages; currencies without quorum are left out
+     */
+    @CacheEvict(value = {"lastRate", "hourlyRates", "validRates", "dailyChanges", "allDailyChanges"},
+            allEntries = true)
+    public List<AverageRate> saveAverageRates(Collection<List<CurrencyRateDTO>> providerRates,
+                                              Collection<CurrencyCode> currencies) {
+        log.info("Saving average rates for {} currencies", currencies.size());
+        List<AverageRate> averages = computeAverages(providerRates, currencies);
+        persist(averages, true);
+        log.info("Average rates saved: {} of {} currencies", averages.size(), currencies.size());
+        return averages;
+    }
+
+    /**
+     * Computes the averages of all given currencies in one pass without storing them,
+     * for the write-behind path (see WriteBehindQueue). All averages share the start of the
+     * current aggregation bucket as their timestamp.
+     *
+     * @param providerRates rate lists, one per provider that answered
+     * @param currencies    the currencies to compute, see {@link #getTrackedCurrencies}
+     * @return the averages; currencies without quorum are left out
+     */
+    public List<AverageRate> computeAverages(Collection<List<CurrencyRateDTO>> providerRates,
+                                             Collection<CurrencyCode> currencies) {
+        List<CurrencyRateDTO[]> quotes = indexByCurrency(providerRates);
+        LocalDateTime timestamp = currentBucket();
+
+        List<AverageRate> averages = new ArrayList<>(currencies.size());
+        for (CurrencyCode currency : currencies) {
+            computeAverage(quotes, currency, timestamp).ifPresent(averages::add);
+        }
+        return averages;
+    }
+
+    /**
+     * Upserts already computed averages in one batch and recomputes the candles of the rows
+     * that changed, in one transaction. Used by the write-behind flusher; writing a batch
+     * again writes nothing and leaves the candles alone.
+     *
+     * @param averages the averages, not yet persisted
+     */
+    @CacheEvict(value = {"lastRate", "hourlyRates", "validRates", "dailyChanges", "allDailyChanges"},
+            allEntries = true)
+    public void persistAverages(List<AverageRate> averages) {
+        persist(averages, true);
+        log.debug("Average rates persisted: {}", averages.size());
+    }
+
+    /**
+     * Writes averages replayed from the write-behind spill file, which may be older than what
+     * was stored since. In run-length mode a bucket already covered by a stored run keeps that
+     * run's rate, so a late average neither splits a run nor replaces a newer rate; uncovered
+     * buckets are written like by {@link #persistAverages}.
+     *
+     * @param averages the replayed averages
+     */
+    @CacheEvict(value = {"lastRate", "hourlyRates", "validRates", "dailyChanges", "allDailyChanges"},
+            allEntries = true)
+    public void replayAverages(List<AverageRate> averages) {
+        persist(averages, false);
+        log.debug("Average rates replayed: {}", averages.size());
+    }
+
+    /**
+     * Writes averages in one transaction under the locks of their currencies, acquired in
+     * numeric code order before the transaction starts and released after it committed.
+     * In run-length mode unchanged averages extend the open run instead of being inserted.
+     *
+     * @param overwrite whether an average replaces the rate of a bucket inside a stored run
+     */
+    private void persist(List<AverageRate> averages, boolean overwrite) {
+        List<String> currencies = averages.stream().map(AverageRate::getCurrency).toList();
+        try (CurrencyLocks.Held held = currencyLocks.lockAll(currencyRegistry.requireAll(currencies))) {
+            transactionTemplate.executeWithoutResult(status -> write(averages, overwrite));
+        }
+    }
+
+    private void write(List<AverageRate> averages, boolean overwrite) {
+        List<AverageRate> inserts = averages;
+        List<AverageRate> overwrites = new ArrayList<>();
+        List<AverageRate> changed = new ArrayList<>(averages.size());
+        if (exchangeProperties.getStorage().isRunLength() && !averages.isEmpty()) {
+            inserts = new ArrayList<>(averages.size());
+            extendRuns(averages, overwrite, inserts, overwrites, changed);
+        }
+        if (!inserts.isEmpty()) {
+            changed.addAll(averageRateRepository.upsert(inserts));
+        }
+        for (AverageRate average : overwrites) {
+            overwriteBucket(average, overwrite).ifPresent(changed::add);
+        }
+        if (!changed.isEmpty()) {
+            candleService.record(changed);
+        }
+        appendTicksAfterCommit(averages);
+    }
+
+    /**
+     * Decides against the database, in bucket order, whether each average extends the latest
+     * row of its currency (same rate, later bucket, same day) or starts a new row. Averages
+     * already covered by their run are dropped; an average extending a row added in this call
+     * widens that row's validTo. Stored rows are extended only while still the latest row with
+     * that rate; otherwise their averages are inserted after all. An average for a bucket the
+     * latest run already covers with another rate, or for a bucket before it, replaces the rate
+     * of that bucket, see {@link #overwriteBucket}; without overwrite the former is dropped.
+     *
+     * @param overwrite  whether an average may replace the rate of a bucket its run covers
+     * @param inserts    collects the averages to upsert
+     * @param overwrites collects the averages whose bucket may lie inside a stored run
+     * @param changed    collects the averages whose bucket was added to a stored run
+     */
+    private void extendRuns(List<AverageRate> averages, boolean overwrite, List<AverageRate> inserts,
+                            List<AverageRate> overwrites, List<AverageRate> changed) {
+        List<AverageRate> ordered = averages.stream().sorted(Comparator.comparing(AverageRate::getTimestamp)).toList();
+        Map<String, AverageRate> stored = averageRateRepository.findLatest(
+                ordered.stream().map(AverageRate::getCurrency).distinct().toList(),
+                AverageRateRepository.runStartBound(ordered.get(0).getTimestamp()));
+        Map<String, AverageRate> open = new HashMap<>(stored);
+        Map<String, List<AverageRate>> extending = new LinkedHashMap<>();
+        for (AverageRate average : ordered) {
+            String currency = average.getCurrency();
+            AverageRate run = open.get(currency);
+            LocalDateTime bucket = average.getTimestamp();
+            if (run != null && !bucket.isAfter(run.getValidTo())) {
+                if (bucket.isBefore(run.getTimestamp()) || overwrite && !sameRate(run, average)) {
+                    overwrites.add(average);
+                }
+                // otherwise the run already holds the bucket
+            } else if (run != null && sameRate(run, average)
+                    && bucket.toLocalDate().equals(run.getTimestamp().toLocalDate())) {
+                run.setValidTo(bucket);
+                if (run == stored.get(currency)) {
+                    extending.computeIfAbsent(currency, key -> new ArrayList<>()).add(average);
+                } else {
+                    changed.add(average);
+                }
+            } else {
+                average.setValidTo(bucket);
+                inserts.add(average);
+                open.put(currency, average);
+            }
+        }
+        List<AverageRate> runs = extending.keySet().stream().map(stored::get).toList();
+        boolean[] found = runs.isEmpty() ? new boolean[0] : averageRateRepository.extendRuns(runs);
+        int extended = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            List<AverageRate> extenders = extending.get(runs.get(i).getCurrency());
+            if (found[i]) {
+                changed.addAll(extenders);
+                extended++;
+            } else {
+                inserts.addAll(extenders);
+            }
+        }
+        log.debug("Run-length ingestion: {} averages, {} runs extended, {} inserted, {} overwriting",
+                averages.size(), extended, inserts.size(), overwrites.size());
+    }
+
+    /**
+     * Gives the bucket of an average its rate when the bucket may lie inside a stored run.
+     * The run covering the bucket is split around it: its head keeps the buckets before, a new
+     * row with the run's rate takes the buckets after, so no two rows ever cover one bucket.
+     *
+     * @param overwrite whether to split a covering run with another rate or leave it alone
+     * @return the average if the stored rate of its bucket changed
+     */
+    private Optional<AverageRate> overwriteBucket(AverageRate average, boolean overwrite) {
+        LocalDateTime bucket = average.getTimestamp();
+        average.setValidTo(bucket);
+        Optional<AverageRate> covering = averageRateRepository.findCovering(average.getCurrency(), bucket);
+        if (covering.isEmpty()) {
+            return averageRateRepository.upsert(List.of(average)).stream().findFirst();
+        }
+        AverageRate run = covering.get();
+        if (!overwrite || sameRate(run, average)) {
+            return Optional.empty();
+        }
+        LocalDateTime runEnd = run.getValidTo();
+        Duration interval = exchangeProperties.getIngestion().getAggregateInterval();
+        List<AverageRate> inserts = new ArrayList<>(2);
+        if (runEnd.isAfter(bucket)) {
+            AverageRate tail = new AverageRate();
+            tail.setCurrency(run.getCurrency());
+            tail.setBuyRate(run.getBuyRate());
+            tail.setSellRate(run.getSellRate());
+            tail.setTimestamp(bucket.plus(interval));
+            tail.setValidTo(runEnd);
+            inserts.add(tail);
+        }
+        if (run.getTimestamp().isBefore(bucket)) {
+            run.setValidTo(bucket.minus(interval));
+            averageRateRepository.rewrite(run);
+            inserts.add(average);
+        } else {
+            average.setId(run.getId());
+            averageRateRepository.rewrite(average);
+        }
+        averageRateRepository.upsert(inserts);
+        log.debug("Split the run of currency={} from {} to {} at {}",
+                average.getCurrency(), run.getTimestamp(), runEnd, bucket);
+        return Optional.of(average);
+    }
+
+    private static boolean sameRate(AverageRate run, AverageRate average) {
+        return run.getBuyRate() == average.getBuyRate() && run.getSellRate() == average.getSellRate();
+    }
+
+    /**
+     * Returns the start of the aggregation bucket containing the current time: wall-clock
+     * multiples of "exchange.ingestion.aggregate-interval", like aligned aggregations fire.
+     * Averages are keyed by (currency, bucket start).
+     */
+    private LocalDateTime currentBucket() {
+        long intervalMillis = exchangeProperties.getIngestion().getAggregateInterval().toMillis();
+        long millis = LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(Math.floorDiv(millis, intervalMillis) * intervalMillis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Resolves the configured ingestion currencies ("exchange.ingestion.currencies").
+     * With "*" every currency quoted by at least one provider is tracked.
+     *
+     * @param providerRates rate lists, one per provider that answered
+     * @return the currencies to compute, ordered by numeric code when "*" is configured
+     * @throws IllegalArgumentException if a configured code is unknown to the CurrencyRegistry
+     */
+    public List<CurrencyCode> getTrackedCurrencies(Collection<List<CurrencyRateDTO>> providerRates) {
+        List<String> configured = exchangeProperties.getIngestion().getCurrencies();
+        if (!configured.contains(ALL_CURRENCIES)) {
+            return currencyRegistry.requireAll(configured);
+        }
+
+        boolean[] quoted = new boolean[CurrencyRegistry.CODE_SPACE];
+        for (List<CurrencyRateDTO> rates : providerRates) {
+            for (CurrencyRateDTO rate : rates) {
+                CurrencyCode currency = resolve(rate);
+                if (currency != null) {
+                    quoted[currency.numericCode()] = true;
+                }
+            }
+        }
+        List<CurrencyCode> currencies = new ArrayList<>();
+        for (int code = 0; code < quoted.length; code++) {
+            if (quoted[code]) {
+                currencies.add(currencyRegistry.byNumeric(code));
+            }
+        }
+        return currencies;
+    }
 
-            double privatBuy = privatRates.stream()
-                    .filter(rate -> rate.getCcy().equalsIgnoreCase(currency))
-                    .findFirst()
-                    .map(CurrencyRateDTO::getBuy)
-                    .orElse(0.0);
+    /**
+     * Indexes every provider list by numeric currency code, keeping the first
+     * valid (positive buy and sell) quote of each currency.
+     *
+     * @param providerRates rate lists, one per provider
+     * @return one index per provider, of CurrencyRegistry.CODE_SPACE slots
+     */
+    private List<CurrencyRateDTO[]> indexByCurrency(Collection<List<CurrencyRateDTO>> providerRates) {
+        List<CurrencyRateDTO[]> indexes = new ArrayList<>(providerRates.size());
+        for (List<CurrencyRateDTO> rates : providerRates) {
+            CurrencyRateDTO[] index = new CurrencyRateDTO[CurrencyRegistry.CODE_SPACE];
+            for (CurrencyRateDTO rate : rates) {
+                CurrencyCode currency = resolve(rate);
+                if (currency != null && rate.getBuy() > 0 && rate.getSale() > 0
+                        && index[currency.numericCode()] == null) {
+                    index[currency.numericCode()] = rate;
+                }
+            }
+            indexes.add(index);
+        }
+        return indexes;
+    }
 
-            double monoBuy = monoRates.stream()
-                    .filter(rate -> rate.getCcy().equalsIgnoreCase(currency))
-                    .findFirst()
-                    .map(CurrencyRateDTO::getBuy)
-                    .orElse(0.0);
+    /**
+     * Returns the currency a provider attached to the quote, resolving its code otherwise.
+     */
+    private CurrencyCode resolve(CurrencyRateDTO rate) {
+        return rate.getCurrency() != null ? rate.getCurrency() : currencyRegistry.byAlpha(rate.getCcy());
+    }
 
-            double privatSell = privatRates.stream()
-                    .filter(rate -> rate.getCcy().equalsIgnoreCase(currency))
-                    .findFirst()
-                    .map(CurrencyRateDTO::getSale)
-                    .orElse(0.0);
+    /**
+     * Averages the quotes of a currency over all providers quoting it.
+     * Quotes are FixedPoint longs, so the sums are exact and the average is
+     * rounded half up only once, to FixedPoint.SCALE places.
+     *
+     * @param quotes    provider indexes built by indexByCurrency
+     * @param currency  the currency
+     * @param timestamp the timestamp of the average
+     * @return the average, or empty if fewer providers than the quorum quote the currency
+     */
+    private Optional<AverageRate> computeAverage(List<CurrencyRateDTO[]> quotes, CurrencyCode currency,
+                                                 LocalDateTime timestamp) {
+        long buySum = 0;
+        long sellSum = 0;
+        int count = 0;
+        for (CurrencyRateDTO[] index : quotes) {
+            CurrencyRateDTO quote = index[currency.numericCode()];
+            if (quote != null) {
+                buySum += quote.getBuy();
+                sellSum += quote.getSale();
+                count++;
+            }
+        }
 
-            double monoSell = monoRates.stream()
-                    .filter(rate -> rate.getCcy().equalsIgnoreCase(currency))
-                    .findFirst()
-                    .map(CurrencyRateDTO::getSale)
-                    .orElse(0.0);
+        int quorum = exchangeProperties.getIngestion().getQuorum();
+        if (count == 0 || count < quorum) {
+            log.debug("Quorum not reached for currency={}: {} of {} required quotes, skipping save",
+                    currency, count, quorum);
+            return Optional.empty();
+        }
 
-            // Calculate average
-            double averageBuy = Math.round(((privatBuy + monoBuy) / 2) * 100.0) / 100.0;
-            double averageSell = Math.round(((privatSell + monoSell) / 2) * 100.0) / 100.0;
+        // Calculate average
+        AverageRate rate = new AverageRate();
+        rate.setCurrency(currency.alphaCode());
+        rate.setBuyRate(FixedPoint.average(buySum, count));
+        rate.setSellRate(FixedPoint.average(sellSum, count));
+        rate.setTimestamp(timestamp);
+        return Optional.of(rate);
+    }
 
-            AverageRate rate = new AverageRate();
-            rate.setCurrency(currency);
-            rate.setBuyRate(averageBuy);
-            rate.setSellRate(averageSell);
-            rate.setTimestamp(LocalDateTime.now());
+    /**
+     * Appends the averages to the tick store once the surrounding transaction has committed,
+     * so a rolled-back cycle never reaches the append-only files. A failing append is logged
+     * and does not affect the stored averages.
+     */
+    private void appendTicksAfterCommit(List<AverageRate> averages) {
+        MappedTickStore store = tickStore.getIfAvailable();
+        if (store == null || averages.isEmpty()) {
+            return;
+        }
+        runAfterCommit(() -> {
+            try {
+                store.append(averages);
+            } catch (RuntimeException e) {
+                log.error("Appending {} averages to the tick store failed: {}", averages.size(), e.getMessage(), e);
+            }
+        });
+    }
 
-            averageRateRepository.save(rate);
-            log.info("Average rate saved: currency={}, buyRate={}, sellRate={}",
-                    currency, averageBuy, averageSell);
+    /**
+     * Runs the action after the surrounding transaction has committed, or right away without one.
+     */
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 
     /**
      * Returns a list of hourly changes (in percent) for today's rates.
+     * <p>
+     * The changes are computed by the database (LAG() window), so only
+     * (timestamp, change) tuples are transferred and no entity is loaded;
+     * with the tick store enabled they are computed from today's ticks instead.
+     * Either way only non-zero changes are listed, whatever the storage layout.
      *
-     * @param currency must be "USD" or "EUR"
+     * @param currency an ISO 4217 alphabetic code known to the CurrencyRegistry
      * @return list of changes with timestamps
      */
     public List<String> getHourlyDynamics(String currency) {
         log.debug("Retrieving hourly dynamics for currency={}", currency);
-        LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-
-        List<AverageRate> rates = averageRateRepository.findByCurrencyAndTimestampAfterOrderByTimestampAsc(
-                currency.toUpperCase(), startOfDay);
+        String code = currencyRegistry.require(currency).alphaCode();
+        List<String> dynamics = getTickDynamics(code);
+        if (dynamics.isEmpty()) {
+            dynamics = averageRateRepository.findChangesByCurrencySince(code, startOfDay())
+                    .stream().map(this::formatChange).toList();
+        }
 
-        if (rates.size() < 2) {
+        if (dynamics.isEmpty()) {
             log.warn("Insufficient data for hourly dynamics per day for currency={}", currency);
             throw new RuntimeException("Insufficient data for hourly dynamics per day");
         }
 
-        List<String> dynamics = new ArrayList<>();
-        for (int i = 1; i < rates.size(); i++) {
-            double previous = rates.get(i - 1).getBuyRate();
-            double current = rates.get(i).getBuyRate();
-            double change = Math.round(((current - previous) / previous) * 10000.0) / 100.0;
+        log.info("Hourly dynamics retrieved for currency={}, entries={}", currency, dynamics.size());
+        return dynamics;
+    }
 
-            dynamics.add("Time: " + rates.get(i).getTimestamp() + ", change: " + change + "%");
+    /**
+     * Returns today's hourly changes of every currency, fetched in a single round trip.
+     * Currencies with fewer than two averages today are left out.
+     *
+     * @return lists of changes with timestamps keyed by currency, in currency order
+     */
+    public Map<String, List<String>> getHourlyDynamicsForAll() {
+        log.debug("Retrieving hourly dynamics for all currencies");
+        Map<String, List<String>> dynamics = new LinkedHashMap<>();
+        for (RateChangeView change : averageRateRepository.findChangesSince(startOfDay())) {
+            dynamics.computeIfAbsent(change.getCurrency(), key -> new ArrayList<>()).add(formatChange(change));
         }
-        log.info("Hourly dynamics retrieved for currency={}, entries={}", currency, dynamics.size());
+        log.info("Hourly dynamics retrieved for {} currencies", dynamics.size());
         return dynamics;
     }
 
+    /**
+     * Computes today's changes of a currency from the tick store, pairing consecutive ticks
+     * the way the LAG() query pairs consecutive rows and leaving out zero changes like it does.
+     *
+     * @return the formatted changes, or an empty list without a tick store or enough ticks
+     */
+    private List<String> getTickDynamics(String currency) {
+        MappedTickStore store = tickStore.getIfAvailable();
+        if (store == null) {
+            return List.of();
+        }
+        List<AverageRateView> ticks = store.findSince(currency, startOfDay());
+        List<String> dynamics = new ArrayList<>(Math.max(ticks.size() - 1, 0));
+        for (int i = 1; i < ticks.size(); i++) {
+            long change = FixedPoint.changeBasisPoints(ticks.get(i).buyRate(), ticks.get(i - 1).buyRate());
+            if (change != 0) {
+                dynamics.add(formatChange(ticks.get(i).timestamp(), change));
+            }
+        }
+        return dynamics;
+    }
+
+    private String formatChange(RateChangeView change) {
+        return formatChange(change.getTimestamp(), change.getChangeBps());
+    }
+
+    private static String formatChange(LocalDateTime timestamp, long changeBps) {
+        return "Time: " + timestamp + ", change: " + FixedPoint.formatBasisPoints(changeBps) + "%";
+    }
+
+    private static LocalDateTime startOfDay() {
+        return LocalDate.now().atStartOfDay();
+    }
+
     /**
      * Returns the change percentage for the last hour,
-     * using the top 2 most recent records for the specified currency.
+     * using the top 2 most recent records for the specified currency: the latest rate is compared
+     * with the rate valid one aggregation bucket earlier, which is the latest row itself while
+     * its run covers that bucket.
      *
-     * @param currency "USD" or "EUR"
-     * @return a Double representing the percent change (rounded to 2 decimals)
+     * @param currency an ISO 4217 alphabetic code known to the CurrencyRegistry
+     * @return the change of the buy rate in basis points, see FixedPoint.formatBasisPoints
      */
-    public Double getLastHourChange(String currency) {
+    public long getLastHourChange(String currency) {
         log.debug("Retrieving last hour change for currency={}", currency);
-        List<AverageRate> rates = averageRateRepository.findTop2ByCurrencyOrderByTimestampDesc(currency.toUpperCase());
-
+        String code = currencyRegistry.require(currency).alphaCode();
+        MappedTickStore store = tickStore.getIfAvailable();
+        List<AverageRateView> rates = store != null
+                ? store.findLatest(code, latestLookbackStart(), 2)
+                : List.of();
         if (rates.size() < 2) {
+            rates = averageRateRepository.findTop2ByCurrencyAndTimestampAfterOrderByTimestampDesc(
+                    code, latestLookbackStart());
+        }
+
+        AverageRateView previous = valueOneBucketBefore(rates);
+        if (previous == null) {
             log.warn("Not enough data for last hour change for currency={}", currency);
             throw new RuntimeException("There are not enough data to calculate the dynamics for the last hour");
         }
 
-        double lastRate = rates.get(0).getBuyRate();
-        double previousRate = rates.get(1).getBuyRate();
-
-        double result = Math.round(((lastRate - previousRate) / previousRate) * 10000.0) / 100.0;
-        log.info("Last hour change for currency={} is {}%", currency, result);
+        long result = FixedPoint.changeBasisPoints(rates.get(0).buyRate(), previous.buyRate());
+        log.info("Last hour change for currency={} is {}%", currency, FixedPoint.formatBasisPoints(result));
         return result;
     }
 
     /**
-     * Calls PrivatBank API to retrieve currency rates.
+     * Returns the row valid one aggregation bucket before the last bucket of the latest row:
+     * the latest row itself while its run covers that bucket, the row before it otherwise.
      *
-     * @return a list of CurrencyRateDTO objects
+     * @param rates the latest rows, newest first
+     * @return the row, or null if there is none
      */
-    public List<CurrencyRateDTO> getPrivatBankRates() {
-        log.debug("Fetching rates from PrivatBank API...");
-        String PRIVATBANK_URL = "https://api.privatbank.ua/p24api/pubinfo?exchange&coursid=5";
-        return webClient.get()
-                .uri(PRIVATBANK_URL)
-                .retrieve()
-                .bodyToFlux(CurrencyRateDTO.class)
-                .collectList()
-                .block();
+    private AverageRateView valueOneBucketBefore(List<AverageRateView> rates) {
+        if (rates.isEmpty()) {
+            return null;
+        }
+        AverageRateView latest = rates.get(0);
+        LocalDateTime previousBucket = latest.validTo()
+                .minus(exchangeProperties.getIngestion().getAggregateInterval());
+        if (!latest.timestamp().isAfter(previousBucket)) {
+            return latest;
+        }
+        return rates.size() > 1 ? rates.get(1) : null;
     }
 
     /**
-     * Calls MonoBank API to retrieve currency rates (USD, EUR vs UAH).
-     * Implements retry for 429 Too Many Requests.
+     * Returns the latest average rate of the specified currency as a read-only projection.
      *
-     * @return a list of CurrencyRateDTO objects
+     * @param currency an ISO 4217 alphabetic code known to the CurrencyRegistry
+     * @return the most recent rate within "exchange.storage.latest-lookback"
+     * @throws EntityNotFoundException if the currency has no rate within the lookback
      */
-    public List<CurrencyRateDTO> getMonoBankRates() {
-        log.debug("Fetching rates from MonoBank API...");
-        String MONOBANK_URL = "https://api.monobank.ua/bank/currency";
-        List<MonoBankRateDTO> monoRates = webClient.get()
-                .uri(MONOBANK_URL)
-                .retrieve()
-                .bodyToFlux(MonoBankRateDTO.class)
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(5))
-                        .filter(throwable -> throwable instanceof WebClientResponseException.TooManyRequests))
-                .onErrorResume(WebClientResponseException.class, e -> {
-                    if (e.getStatusCode().value() == 429) {
-                        log.error("429 Too Many Requests from MonoBank API. Waiting before the next request.");
-                    }
-                    return Mono.empty();
-                })
-                .collectList()
-                .block();
+    public AverageRateView getLastRate(String currency) {
+        log.debug("Retrieving the latest rate for currency={}", currency);
+        String code = currencyRegistry.require(currency).alphaCode();
+        MappedTickStore store = tickStore.getIfAvailable();
+        Optional<AverageRateView> latest = store != null
+                ? store.findLatest(code, latestLookbackStart())
+                : Optional.empty();
+        return latest
+                .or(() -> averageRateRepository.findTopByCurrencyAndTimestampAfterOrderByTimestampDesc(
+                        code, latestLookbackStart()))
+                .orElseThrow(() -> new EntityNotFoundException("Records for currency " + currency + " not found"));
+    }
 
-        if (monoRates == null) {
-            log.warn("MonoBank returned null or empty list.");
-            return List.of();
-        }
+    /**
+     * Lower bound of the latest-rate queries. Truncated to the hour, so consecutive
+     * calls bind the same value and keep the cached query plan.
+     */
+    private LocalDateTime latestLookbackStart() {
+        return LocalDateTime.now()
+                .minus(exchangeProperties.getStorage().getLatestLookback())
+                .truncatedTo(ChronoUnit.HOURS);
+    }
 
-        // Filter out only UAH-based rates (980) and USD/EUR
-        return monoRates.stream()
-                .filter(rate -> rate.getCurrencyCodeB() == 980) // UAH
-                .filter(rate -> rate.getCurrencyCodeA() == 840 || rate.getCurrencyCodeA() == 978) // USD or EUR
-                .map(rate -> {
-                    CurrencyRateDTO dto = new CurrencyRateDTO();
-                    dto.setCcy(mapCurrencyCodeToString(rate.getCurrencyCodeA()));
-                    dto.setBase_ccy("UAH");
-                    dto.setBuy(rate.getRateBuy());
-                    dto.setSale(rate.getRateSell());
-                    return dto;
-                })
-                .toList();
+    /**
+     * Fetches rates from all registered providers in parallel.
+     * <p>
+     * Every provider is subscribed at the same time, so the wall-clock time of a cycle
+     * is bounded by the slowest provider rather than the sum of all of them. Calls go through
+     * ProviderExecutor (circuit breaker, rate limiter, ingestion deadline), which substitutes
+     * a provider's recent last-known-good snapshot when the provider is unavailable.
+     * A provider that yields neither rates nor a fresh snapshot is left out of the result
+     * instead of stalling the cycle.
+     *
+     * @return a Mono emitting the rates of every provider that answered, keyed by provider name
+     */
+    public Mono<Map<String, List<CurrencyRateDTO>>> fetchAllRates() {
+        Duration deadline = exchangeProperties.getIngestion().getDeadline();
+        log.debug("Fetching rates from {} providers with deadline={}", rateProviders.size(), deadline);
+        return Flux.fromIterable(rateProviders)
+                .flatMap(provider -> providerExecutor.execute(provider, deadline)
+                        .filter(rates -> !rates.isEmpty())
+                        .map(rates -> Map.entry(provider.getName(), rates))
+                        .onErrorResume(e -> {
+                            log.error("Provider {} left out of the cycle: {}", provider.getName(), e.toString());
+                            return Mono.empty();
+                        }))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
     }
 
     /**
-     * Helper method to map numeric currency codes to string names.
+     * Returns the latest snapshot of every provider that is within the provider's
+     * staleness bound. Used by the polling engine, which refreshes snapshots on
+     * each provider's own cadence.
      *
-     * @param code The numeric currency code
-     * @return "USD" if 840, "EUR" if 978, or null otherwise
+     * @return the fresh rates keyed by provider name
      */
-    private String mapCurrencyCodeToString(int code) {
-        return switch (code) {
-            case 840 -> "USD";
-            case 978 -> "EUR";
-            default -> null;
-        };
+    public Map<String, List<CurrencyRateDTO>> getLatestProviderRates() {
+        Map<String, List<CurrencyRateDTO>> rates = new HashMap<>();
+        for (RateProvider provider : rateProviders) {
+            Duration maxStaleness = exchangeProperties.getProvider(provider.getName()).getMaxStaleness();
+            snapshotCache.getFresh(provider.getName(), maxStaleness)
+                    .ifPresent(snapshot -> rates.put(provider.getName(), snapshot.rates()));
+        }
+        return rates;
     }
 }
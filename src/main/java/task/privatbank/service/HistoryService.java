@@ -0,0 +1,175 @@
+package task.privatbank.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.currency.FixedPoint;
+import task.privatbank.dto.AverageRateView;
+import task.privatbank.dto.ExportFormat;
+import task.privatbank.dto.HistoryCursor;
+import task.privatbank.dto.HistoryPage;
+import task.privatbank.repository.AverageRateRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Service that serves the full rate history of a currency.
+ * <p>
+ * Pages are read by keyset pagination on (timestamp, id), newest first: a page starts right
+ * after the last row of the previous one instead of skipping OFFSET rows, so every page costs
+ * the same however deep a client pages.
+ * <p>
+ * Bulk downloads are streamed straight from a server-side cursor to the response,
+ * so neither the database result nor the output is ever held in memory as a whole.
+ * <p>
+ * A row holds its rate from timestamp to validTo, so a range includes the row that was
+ * current at its start even when that row began earlier.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HistoryService {
+
+    /** Page size used when the client does not ask for one. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** Upper bound of the page size. */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /** Lower bound of the history when the client does not give one. */
+    static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String CSV_HEADER = "id,currency,timestamp,buy_rate,sell_rate,valid_to\n";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final AverageRateRepository averageRateRepository;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Returns one page of the history of a currency, newest first.
+     *
+     * @param currency an ISO 4217 alphabetic code known to the CurrencyRegistry
+     * @param from     rows valid at or after it are returned, or null for the whole history
+     * @param to       inclusive upper bound of the timestamp, or null for now
+     * @param cursor   the nextCursor of the previous page, or null for the first page
+     * @param size     the page size, 1 to MAX_PAGE_SIZE
+     * @return the page and the cursor of the next one
+     * @throws IllegalArgumentException if the cursor is malformed or the size out of range
+     */
+    public HistoryPage getHistory(String currency, LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        HistoryCursor position = cursor != null
+                ? HistoryCursor.decode(cursor)
+                : new HistoryCursor(to != null ? to : LocalDateTime.now(), Long.MAX_VALUE);
+        log.debug("Retrieving history page for currency={} before={} size={}", currency, position, size);
+
+        // one extra row tells whether another page follows
+        LocalDateTime lower = from != null ? from : EARLIEST;
+        List<AverageRateView> rows = averageRateRepository.findHistoryPage(
+                currencyRegistry.require(currency).alphaCode(), AverageRateRepository.runStartBound(lower), lower,
+                position.timestamp(), position.id(), Limit.of(size + 1));
+
+        if (rows.size() <= size) {
+            return new HistoryPage(rows, null);
+        }
+        List<AverageRateView> page = rows.subList(0, size);
+        AverageRateView last = page.get(size - 1);
+        return new HistoryPage(List.copyOf(page), new HistoryCursor(last.timestamp(), last.id()).encode());
+    }
+
+    /**
+     * Writes the rates of a currency valid at some time within [from, to], oldest first, to the output.
+     * <p>
+     * Rows are read through a repository Stream inside this read-only transaction and written
+     * one by one, so memory use does not depend on the number of rows. The output is flushed
+     * but not closed.
+     *
+     * @param currency an ISO 4217 alphabetic code known to the CurrencyRegistry
+     * @param from     rows valid at or after it are exported, or null for the whole history
+     * @param to       inclusive upper bound of the timestamp, or null for now
+     * @param format   CSV or NDJSON
+     * @param output   the response body
+     * @return the number of exported rows
+     * @throws IOException if writing to the output fails, e.g. the client disconnected
+     */
+    @Transactional(readOnly = true)
+    public long export(String currency, LocalDateTime from, LocalDateTime to, ExportFormat format,
+                       OutputStream output) throws IOException {
+        String code = currencyRegistry.require(currency).alphaCode();
+        log.info("Exporting history of currency={} from={} to={} as {}", code, from, to, format);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        long count;
+        LocalDateTime lower = from != null ? from : EARLIEST;
+        try (Stream<AverageRateView> rates = averageRateRepository.streamHistory(
+                code, AverageRateRepository.runStartBound(lower), lower, to != null ? to : LocalDateTime.now())) {
+            count = switch (format) {
+                case CSV -> writeCsv(rates.iterator(), writer);
+                case NDJSON -> writeNdjson(rates.iterator(), writer);
+            };
+        }
+        writer.flush();
+        log.info("Exported {} rows of currency={}", count, code);
+        return count;
+    }
+
+    private long writeCsv(Iterator<AverageRateView> rates, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        long count = 0;
+        while (rates.hasNext()) {
+            AverageRateView rate = rates.next();
+            writer.write(String.valueOf(rate.id()));
+            writer.write(',');
+            writer.write(rate.currency());
+            writer.write(',');
+            writer.write(rate.timestamp().toString());
+            writer.write(',');
+            writer.write(FixedPoint.format(rate.buyRate()));
+            writer.write(',');
+            writer.write(FixedPoint.format(rate.sellRate()));
+            writer.write(',');
+            writer.write(rate.validTo().toString());
+            writer.write('\n');
+            count++;
+        }
+        return count;
+    }
+
+    private long writeNdjson(Iterator<AverageRateView> rates, Writer writer) throws IOException {
+        long count = 0;
+        try (SequenceWriter json = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(writer)) {
+            while (rates.hasNext()) {
+                json.write(rates.next());
+                count++;
+            }
+        }
+        if (count > 0) {
+            writer.write('\n');
+        }
+        return count;
+    }
+}
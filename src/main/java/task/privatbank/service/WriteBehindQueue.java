@@ -0,0 +1,363 @@
+package task.privatbank.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.model.AverageRate;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded write-behind buffer between the aggregation and the database.
+ * <p>
+ * The scheduler only computes averages and offers them here; a single flusher thread drains
+ * the queue and stores the averages through {@link ExchangeRateService#persistAverages} in
+ * batches of up to "batch-size", or whatever arrived within "flush-interval" of the first one.
+ * A slow database therefore delays the flusher, not the ingestion.
+ * <p>
+ * Failure handling ("exchange.storage.write-behind.*"):
+ * - backpressure: a producer blocks up to "offer-timeout" on a full queue; what still does
+ *   not fit is spilled instead of dropped;
+ * - retry: a failed batch is retried "max-retries" times with exponential backoff
+ *   from "retry-backoff" up to "max-retry-backoff";
+ * - spill: batches that still fail are appended to "spill-file" and fsynced. While the queue
+ *   is idle the file is replayed in batches; what fails again goes back to the file.
+ * <p>
+ * Delivery is at-least-once: a crash during a replay replays the whole file again. Replays go
+ * through {@link ExchangeRateService#replayAverages}: an average already stored is a no-op, and
+ * in run-length mode a replayed average never overrides a bucket a stored run covers, so it can
+ * neither create overlapping rows nor replace a newer rate. Without run-length storage a
+ * replayed average overwrites the row of its (currency, bucket).
+ */
+@Component
+@ConditionalOnProperty(prefix = "exchange.storage.write-behind", name = "enabled")
+@Slf4j
+public class WriteBehindQueue {
+
+    private static final String REPLAY_SUFFIX = ".replaying";
+
+    private final ExchangeRateService exchangeRateService;
+    private final ExchangeProperties.WriteBehind settings;
+    private final BlockingQueue<AverageRate> queue;
+    private final Path spillFile;
+    private final Path replayFile;
+    private final Object spillLock = new Object();
+
+    private final Counter flushed;
+    private final Counter spilled;
+    private final Counter retries;
+
+    private volatile boolean stopped;
+    private Thread flusher;
+    private long nextReplayNanos;
+
+    public WriteBehindQueue(ExchangeRateService exchangeRateService, ExchangeProperties exchangeProperties,
+                            MeterRegistry meterRegistry) {
+        this.exchangeRateService = exchangeRateService;
+        this.settings = exchangeProperties.getStorage().getWriteBehind();
+        this.queue = new ArrayBlockingQueue<>(settings.getCapacity());
+        this.spillFile = settings.getSpillFile();
+        this.replayFile = spillFile.resolveSibling(spillFile.getFileName() + REPLAY_SUFFIX);
+        this.nextReplayNanos = System.nanoTime();
+
+        Gauge.builder("exchange.write-behind.queue.size", queue, BlockingQueue::size)
+                .description("Averages waiting to be written")
+                .register(meterRegistry);
+        this.flushed = Counter.builder("exchange.write-behind.flushed")
+                .description("Averages written by the flusher").register(meterRegistry);
+        this.spilled = Counter.builder("exchange.write-behind.spilled")
+                .description("Averages spilled to the local file").register(meterRegistry);
+        this.retries = Counter.builder("exchange.write-behind.retries")
+                .description("Retried batch writes").register(meterRegistry);
+    }
+
+    /**
+     * Starts the flusher once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (flusher != null || stopped) {
+            return;
+        }
+        flusher = new Thread(this::run, "write-behind-flusher");
+        flusher.start();
+        log.info("Write-behind queue started (capacity={}, batchSize={}, flushInterval={})",
+                settings.getCapacity(), settings.getBatchSize(), settings.getFlushInterval());
+    }
+
+    /**
+     * Stops the flusher; it writes what is still queued with one attempt per batch
+     * and spills the rest.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            stopped = true;
+            thread = flusher;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    /**
+     * Queues averages for writing. Blocks while the queue is full, at most "offer-timeout"
+     * for the whole call; averages that do not fit in time are spilled to the file.
+     *
+     * @param averages the averages, not yet persisted
+     * @return the number of averages queued, the others were spilled
+     */
+    public int offer(Collection<AverageRate> averages) {
+        List<AverageRate> pending = List.copyOf(averages);
+        long deadline = System.nanoTime() + settings.getOfferTimeout().toNanos();
+        int queued = 0;
+        try {
+            while (queued < pending.size() && !stopped && queue.offer(pending.get(queued),
+                    Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                queued++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (queued < pending.size()) {
+            log.warn("Write-behind queue is full or stopped, spilling {} averages", pending.size() - queued);
+            spill(pending.subList(queued, pending.size()));
+        }
+        return queued;
+    }
+
+    /**
+     * @return the number of averages waiting in the queue
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    private void run() {
+        try {
+            replaySpill();
+            while (!stopped) {
+                List<AverageRate> batch = collect();
+                if (batch.isEmpty()) {
+                    replaySpill();
+                } else {
+                    flush(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Write-behind flusher interrupted");
+        }
+        drain();
+    }
+
+    /**
+     * Waits up to "flush-interval" for the first average, then collects more until
+     * the batch is full or the interval since the first one has passed.
+     */
+    private List<AverageRate> collect() throws InterruptedException {
+        long interval = settings.getFlushInterval().toNanos();
+        AverageRate first = queue.poll(interval, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return List.of();
+        }
+        int batchSize = settings.getBatchSize();
+        List<AverageRate> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + interval;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            AverageRate next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * Writes a batch, retrying with backoff, and spills it once the retries are used up
+     * or the flusher is interrupted.
+     *
+     * @return whether the batch was written
+     */
+    boolean flush(List<AverageRate> batch) throws InterruptedException {
+        Duration backoff = settings.getRetryBackoff();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                write(batch);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= settings.getMaxRetries()) {
+                    log.error("Writing {} averages failed after {} attempts, spilling: {}",
+                            batch.size(), attempt + 1, e.getMessage());
+                    spill(batch);
+                    return false;
+                }
+                log.warn("Writing {} averages failed, retrying in {}: {}", batch.size(), backoff, e.getMessage());
+            }
+            retries.increment();
+            try {
+                Thread.sleep(backoff.toMillis());
+            } catch (InterruptedException e) {
+                spill(batch);
+                throw e;
+            }
+            backoff = min(backoff.multipliedBy(2), settings.getMaxRetryBackoff());
+        }
+    }
+
+    /**
+     * Writes what is left in the queue on shutdown, one attempt per batch.
+     */
+    private void drain() {
+        List<AverageRate> batch = new ArrayList<>(settings.getBatchSize());
+        while (queue.drainTo(batch, settings.getBatchSize()) > 0) {
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                log.error("Writing {} averages on shutdown failed, spilling: {}", batch.size(), e.getMessage());
+                spill(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<AverageRate> batch) {
+        exchangeRateService.persistAverages(new ArrayList<>(batch));
+        flushed.increment(batch.size());
+    }
+
+    /**
+     * Replays the spill file in batches: it is renamed first, so new spills go to a fresh file,
+     * and what fails again is appended back. After a failure the next replay waits
+     * "max-retry-backoff". A file left over from an interrupted replay is replayed first.
+     */
+    void replaySpill() {
+        if (System.nanoTime() - nextReplayNanos < 0 || !Files.exists(spillFile) && !Files.exists(replayFile)) {
+            return;
+        }
+        List<AverageRate> spilledRates;
+        try {
+            synchronized (spillLock) {
+                if (!Files.exists(replayFile)) {
+                    Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            spilledRates = new ArrayList<>();
+            for (String line : Files.readAllLines(replayFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    spilledRates.add(parseLine(line));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Reading the spill file {} failed: {}", replayFile, e.getMessage(), e);
+            nextReplayNanos = System.nanoTime() + settings.getMaxRetryBackoff().toNanos();
+            return;
+        }
+
+        int batchSize = settings.getBatchSize();
+        for (int from = 0; from < spilledRates.size(); from += batchSize) {
+            List<AverageRate> batch = spilledRates.subList(from, Math.min(from + batchSize, spilledRates.size()));
+            try {
+                exchangeRateService.replayAverages(new ArrayList<>(batch));
+                flushed.increment(batch.size());
+            } catch (RuntimeException e) {
+                log.warn("Replaying the spill file failed, {} averages kept: {}",
+                        spilledRates.size() - from, e.getMessage());
+                nextReplayNanos = System.nanoTime() + settings.getMaxRetryBackoff().toNanos();
+                if (spill(spilledRates.subList(from, spilledRates.size()))) {
+                    deleteReplayFile();
+                }
+                // otherwise the replay file is kept and replayed again as a whole
+                return;
+            }
+        }
+        deleteReplayFile();
+        log.info("Spill file replayed: {} averages", spilledRates.size());
+    }
+
+    private void deleteReplayFile() {
+        try {
+            Files.deleteIfExists(replayFile);
+        } catch (IOException e) {
+            log.error("Deleting the replayed spill file {} failed: {}", replayFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Appends averages to the spill file and forces them to disk.
+     *
+     * @return whether the averages were written
+     */
+    private boolean spill(List<AverageRate> averages) {
+        StringBuilder lines = new StringBuilder(averages.size() * 48);
+        for (AverageRate average : averages) {
+            lines.append(average.getCurrency()).append(',')
+                    .append(average.getTimestamp()).append(',')
+                    .append(average.getBuyRate()).append(',')
+                    .append(average.getSellRate()).append('\n');
+        }
+        synchronized (spillLock) {
+            try {
+                Path parent = spillFile.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                try (FileOutputStream output = new FileOutputStream(spillFile.toFile(), true)) {
+                    output.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+                    output.getChannel().force(true);
+                }
+            } catch (IOException e) {
+                log.error("Spilling {} averages to {} failed, they are lost: {}",
+                        averages.size(), spillFile, e.getMessage(), e);
+                return false;
+            }
+        }
+        spilled.increment(averages.size());
+        return true;
+    }
+
+    private static AverageRate parseLine(String line) {
+        String[] fields = line.split(",");
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Malformed spill line: " + line);
+        }
+        AverageRate average = new AverageRate();
+        average.setCurrency(fields[0]);
+        average.setTimestamp(LocalDateTime.parse(fields[1]));
+        average.setBuyRate(Long.parseLong(fields[2]));
+        average.setSellRate(Long.parseLong(fields[3]));
+        return average;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
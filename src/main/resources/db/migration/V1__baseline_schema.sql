@@ -0,0 +1,35 @@
+-- Baseline schema of the currency tracker.
+-- Idempotent, so it also adopts databases created by the former ddl-auto=update.
+
+CREATE TABLE IF NOT EXISTS average_rates (
+    id        BIGINT           NOT NULL,
+    currency  VARCHAR(255)     NOT NULL,
+    buy_rate  DOUBLE PRECISION NOT NULL,
+    sell_rate DOUBLE PRECISION NOT NULL,
+    timestamp TIMESTAMP(6)     NOT NULL,
+    CONSTRAINT average_rates_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS currency_rates (
+    id        BIGINT           NOT NULL,
+    currency  VARCHAR(255)     NOT NULL,
+    buy_rate  DOUBLE PRECISION NOT NULL,
+    sell_rate DOUBLE PRECISION NOT NULL,
+    timestamp TIMESTAMP(6)     NOT NULL,
+    CONSTRAINT currency_rates_pkey PRIMARY KEY (id)
+);
+
+-- Ids used to be IDENTITY columns; they now come from the pooled sequences below.
+ALTER TABLE average_rates ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE currency_rates ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+-- INCREMENT BY must match the allocationSize of the entities (50).
+CREATE SEQUENCE IF NOT EXISTS average_rates_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS currency_rates_seq INCREMENT BY 50;
+ALTER SEQUENCE average_rates_seq INCREMENT BY 50;
+ALTER SEQUENCE currency_rates_seq INCREMENT BY 50;
+
+-- The pooled optimizer hands out (value - 49 .. value) after nextval, so the next value
+-- must be at least one full block above the highest existing id.
+SELECT setval('average_rates_seq', (SELECT COALESCE(MAX(id), 0) FROM average_rates) + 50);
+SELECT setval('currency_rates_seq', (SELECT COALESCE(MAX(id), 0) FROM currency_rates) + 50);
@@ -0,0 +1,7 @@
+-- Serves every AverageRateRepository query: all of them filter by currency and order by
+-- timestamp (DESC for the latest/top-2 lookups, a backward scan for the ascending day range).
+-- INCLUDE makes the index covering, so the queries are answered by index-only scans.
+-- CONCURRENTLY keeps the table writable while the index is built; Flyway runs this
+-- single-statement migration outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_average_rates_currency_timestamp
+    ON average_rates (currency, timestamp DESC) INCLUDE (buy_rate, sell_rate, id);
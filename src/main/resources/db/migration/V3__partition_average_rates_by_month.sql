@@ -0,0 +1,44 @@
+-- Monthly range partitioning of average_rates on timestamp.
+-- Partitions are named average_rates_pYYYYMM; PartitionMaintenanceJob creates future ones
+-- and drops those older than the retention. The primary key must contain the partition key.
+
+ALTER TABLE average_rates RENAME TO average_rates_legacy;
+ALTER TABLE average_rates_legacy RENAME CONSTRAINT average_rates_pkey TO average_rates_legacy_pkey;
+ALTER INDEX idx_average_rates_currency_timestamp RENAME TO idx_average_rates_legacy_currency_timestamp;
+
+CREATE TABLE average_rates (
+    id        BIGINT           NOT NULL,
+    currency  VARCHAR(255)     NOT NULL,
+    buy_rate  DOUBLE PRECISION NOT NULL,
+    sell_rate DOUBLE PRECISION NOT NULL,
+    timestamp TIMESTAMP(6)     NOT NULL,
+    CONSTRAINT average_rates_pkey PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Safety net for rows outside every monthly partition; expected to stay empty.
+CREATE TABLE average_rates_default PARTITION OF average_rates DEFAULT;
+
+-- One partition per month from the oldest stored row up to two months ahead.
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT MIN(timestamp) FROM average_rates_legacy), now()))::date;
+    last_month  DATE := (date_trunc('month', now()) + INTERVAL '2 months')::date;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF average_rates FOR VALUES FROM (%L) TO (%L)',
+                       'average_rates_p' || to_char(month_start, 'YYYYMM'),
+                       month_start,
+                       (month_start + INTERVAL '1 month')::date);
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO average_rates (id, currency, buy_rate, sell_rate, timestamp)
+SELECT id, currency, buy_rate, sell_rate, timestamp
+FROM average_rates_legacy;
+
+DROP TABLE average_rates_legacy;
+
+-- Same covering index as V2, now created on every partition.
+CREATE INDEX idx_average_rates_currency_timestamp
+    ON average_rates (currency, timestamp DESC) INCLUDE (buy_rate, sell_rate, id);
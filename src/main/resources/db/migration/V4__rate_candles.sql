@@ -0,0 +1,39 @@
+-- OHLC rollups of average_rates per currency, resolution (MINUTE, HOUR, DAY) and bucket.
+-- Maintained incrementally by CandleService with INSERT ... ON CONFLICT DO UPDATE;
+-- range reads use the primary key.
+CREATE TABLE rate_candles (
+    currency     VARCHAR(255)     NOT NULL,
+    resolution   VARCHAR(16)      NOT NULL,
+    bucket_start TIMESTAMP(6)     NOT NULL,
+    open_buy     DOUBLE PRECISION NOT NULL,
+    high_buy     DOUBLE PRECISION NOT NULL,
+    low_buy      DOUBLE PRECISION NOT NULL,
+    close_buy    DOUBLE PRECISION NOT NULL,
+    open_sell    DOUBLE PRECISION NOT NULL,
+    high_sell    DOUBLE PRECISION NOT NULL,
+    low_sell     DOUBLE PRECISION NOT NULL,
+    close_sell   DOUBLE PRECISION NOT NULL,
+    open_at      TIMESTAMP(6)     NOT NULL,
+    close_at     TIMESTAMP(6)     NOT NULL,
+    tick_count   BIGINT           NOT NULL,
+    CONSTRAINT rate_candles_pkey PRIMARY KEY (currency, resolution, bucket_start)
+);
+
+-- Backfill from the stored averages.
+INSERT INTO rate_candles (currency, resolution, bucket_start,
+                          open_buy, high_buy, low_buy, close_buy,
+                          open_sell, high_sell, low_sell, close_sell,
+                          open_at, close_at, tick_count)
+SELECT currency, resolution, bucket_start,
+       (array_agg(buy_rate ORDER BY timestamp))[1],
+       MAX(buy_rate), MIN(buy_rate),
+       (array_agg(buy_rate ORDER BY timestamp DESC))[1],
+       (array_agg(sell_rate ORDER BY timestamp))[1],
+       MAX(sell_rate), MIN(sell_rate),
+       (array_agg(sell_rate ORDER BY timestamp DESC))[1],
+       MIN(timestamp), MAX(timestamp), COUNT(*)
+FROM (SELECT r.currency, r.buy_rate, r.sell_rate, r.timestamp, res.resolution,
+             date_trunc(res.unit, r.timestamp) AS bucket_start
+      FROM average_rates r
+      CROSS JOIN (VALUES ('MINUTE', 'minute'), ('HOUR', 'hour'), ('DAY', 'day')) AS res (resolution, unit)) ticks
+GROUP BY currency, resolution, bucket_start;
@@ -0,0 +1,7 @@
+-- Adds id as a trailing key column so keyset pagination on (timestamp, id) is an ordered
+-- index range scan. The index still serves the queries of V2 (currency, timestamp DESC)
+-- and stays covering, so it replaces the V2 index instead of doubling the write cost.
+DROP INDEX IF EXISTS idx_average_rates_currency_timestamp;
+
+CREATE INDEX idx_average_rates_currency_timestamp_id
+    ON average_rates (currency, timestamp DESC, id DESC) INCLUDE (buy_rate, sell_rate);
@@ -0,0 +1,21 @@
+-- Rates become fixed-point BIGINTs holding the rate times 10^4 (see FixedPoint), e.g. 41.25 -> 412500.
+-- Converted through numeric so .5 rounds half away from zero, as FixedPoint does.
+-- On the partitioned average_rates the change recurses into every partition,
+-- and the covering index of V5 is rebuilt with the new column types.
+ALTER TABLE average_rates
+    ALTER COLUMN buy_rate TYPE BIGINT USING ROUND(buy_rate::numeric * 10000)::bigint,
+    ALTER COLUMN sell_rate TYPE BIGINT USING ROUND(sell_rate::numeric * 10000)::bigint;
+
+ALTER TABLE currency_rates
+    ALTER COLUMN buy_rate TYPE BIGINT USING ROUND(buy_rate::numeric * 10000)::bigint,
+    ALTER COLUMN sell_rate TYPE BIGINT USING ROUND(sell_rate::numeric * 10000)::bigint;
+
+ALTER TABLE rate_candles
+    ALTER COLUMN open_buy TYPE BIGINT USING ROUND(open_buy::numeric * 10000)::bigint,
+    ALTER COLUMN high_buy TYPE BIGINT USING ROUND(high_buy::numeric * 10000)::bigint,
+    ALTER COLUMN low_buy TYPE BIGINT USING ROUND(low_buy::numeric * 10000)::bigint,
+    ALTER COLUMN close_buy TYPE BIGINT USING ROUND(close_buy::numeric * 10000)::bigint,
+    ALTER COLUMN open_sell TYPE BIGINT USING ROUND(open_sell::numeric * 10000)::bigint,
+    ALTER COLUMN high_sell TYPE BIGINT USING ROUND(high_sell::numeric * 10000)::bigint,
+    ALTER COLUMN low_sell TYPE BIGINT USING ROUND(low_sell::numeric * 10000)::bigint,
+    ALTER COLUMN close_sell TYPE BIGINT USING ROUND(close_sell::numeric * 10000)::bigint;
@@ -0,0 +1,12 @@
+-- An average is keyed by its currency and the start of its aggregation bucket (the timestamp),
+-- so a retried, overlapping or concurrent aggregation overwrites the row instead of adding one.
+-- Existing duplicates keep their newest row. The unique index contains the partition key,
+-- as PostgreSQL requires, and serves the ON CONFLICT (currency, timestamp) of the upsert.
+DELETE FROM average_rates a
+USING average_rates b
+WHERE a.currency = b.currency
+  AND a.timestamp = b.timestamp
+  AND a.id < b.id;
+
+CREATE UNIQUE INDEX uq_average_rates_currency_timestamp
+    ON average_rates (currency, timestamp);
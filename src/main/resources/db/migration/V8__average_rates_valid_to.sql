@@ -0,0 +1,16 @@
+-- Run-length rows: an average holds its rate for every aggregation bucket from timestamp
+-- (valid from) to valid_to, both inclusive. Rows written one per bucket have valid_to = timestamp,
+-- which is what every existing row becomes. With "exchange.storage.run-length" enabled an unchanged
+-- rate extends valid_to of the current row instead of adding one. A run never crosses midnight,
+-- so it always lies in the partition of its timestamp and a day start bounds every overlap query.
+ALTER TABLE average_rates ADD COLUMN valid_to TIMESTAMP(6);
+
+UPDATE average_rates SET valid_to = timestamp;
+
+ALTER TABLE average_rates ALTER COLUMN valid_to SET NOT NULL;
+
+-- The read queries now also return valid_to; keep the index of V5 covering.
+DROP INDEX IF EXISTS idx_average_rates_currency_timestamp_id;
+
+CREATE INDEX idx_average_rates_currency_timestamp_id
+    ON average_rates (currency, timestamp DESC, id DESC) INCLUDE (buy_rate, sell_rate, valid_to);
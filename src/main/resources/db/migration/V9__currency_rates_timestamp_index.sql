@@ -0,0 +1,3 @@
+-- Lets RetentionJob find expired currency_rates rows oldest first without a full scan.
+-- average_rates and rate_candles are purged per currency through their existing indexes.
+CREATE INDEX IF NOT EXISTS idx_currency_rates_timestamp ON currency_rates (timestamp);
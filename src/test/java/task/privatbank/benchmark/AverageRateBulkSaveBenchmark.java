@@ -0,0 +1,114 @@
+package task.privatbank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import task.privatbank.TestTaskPrivatBankApplication;
+import task.privatbank.model.AverageRate;
+import task.privatbank.repository.AverageRateRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many AverageRate rows per second reach the database through
+ * saveAll (one transaction, Hibernate batching) and the bulkSave fragment
+ * (flush/clear per JDBC batch).
+ * <p>
+ * Needs the PostgreSQL instance from application.properties; the rows written by the
+ * benchmark are deleted afterwards. The "ingestion" sizes correspond to one aggregation
+ * cycle over every published currency, the larger ones to a historical backfill.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=task.privatbank.benchmark.AverageRateBulkSaveBenchmark
+ * <p>
+ * The "rows" secondary result is the throughput in rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AverageRateBulkSaveBenchmark {
+
+    /** Currency written by the benchmark, not used by the application. */
+    private static final String CURRENCY = "XTS";
+
+    @Param({"150", "10000", "100000"})
+    private int batchRows;
+
+    private ConfigurableApplicationContext context;
+    private AverageRateRepository repository;
+    private TransactionTemplate transactionTemplate;
+    private LocalDateTime clock;
+
+    /**
+     * Counts written rows; JMH reports it as an extra throughput metric (rows/s).
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TestTaskPrivatBankApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "exchange.providers.privatbank.enabled=false",
+                        "exchange.providers.monobank.enabled=false",
+                        "spring.jpa.show-sql=false")
+                .run();
+        repository = context.getBean(AverageRateRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        clock = LocalDateTime.of(2000, 1, 1, 0, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.getBean(JdbcTemplate.class).update("DELETE FROM average_rates WHERE currency = ?", CURRENCY);
+        context.close();
+    }
+
+    @Benchmark
+    public void saveAll(Rows rows) {
+        List<AverageRate> batch = newBatch();
+        transactionTemplate.executeWithoutResult(status -> repository.saveAll(batch));
+        rows.rows += batch.size();
+    }
+
+    @Benchmark
+    public void bulkSave(Rows rows) {
+        rows.rows += repository.bulkSave(newBatch());
+    }
+
+    private List<AverageRate> newBatch() {
+        List<AverageRate> batch = new ArrayList<>(batchRows);
+        for (int i = 0; i < batchRows; i++) {
+            AverageRate rate = new AverageRate();
+            rate.setCurrency(CURRENCY);
+            rate.setBuyRate(400_000 + (i % 100) * 100);
+            rate.setSellRate(405_000 + (i % 100) * 100);
+            rate.setTimestamp(clock = clock.plusMinutes(1));
+            batch.add(rate);
+        }
+        return batch;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AverageRateBulkSaveBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
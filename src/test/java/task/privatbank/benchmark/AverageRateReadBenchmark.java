@@ -0,0 +1,141 @@
+package task.privatbank.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+import task.privatbank.TestTaskPrivatBankApplication;
+import task.privatbank.dto.AverageRateView;
+import task.privatbank.model.AverageRate;
+import task.privatbank.repository.AverageRateRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the read queries returning managed AverageRate entities (the former
+ * repository methods) with the read-only AverageRateView projections.
+ * <p>
+ * Every call runs in its own transaction, as a request does with open-in-view, so the
+ * entity variant pays for persistence-context registration and dirty-checking snapshots.
+ * Caches are disabled to measure the queries themselves.
+ * <p>
+ * Needs the PostgreSQL instance from application.properties; the seeded rows are
+ * deleted afterwards.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=task.privatbank.benchmark.AverageRateReadBenchmark
+ * <p>
+ * The GC profiler reports allocation per request (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AverageRateReadBenchmark {
+
+    /** Currency written by the benchmark, not used by the application. */
+    private static final String CURRENCY = "XTS";
+
+    /** Averages per day at a one-minute polling cadence. */
+    private static final int ROWS_PER_DAY = 24 * 60;
+
+    private ConfigurableApplicationContext context;
+    private AverageRateRepository repository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private LocalDateTime startOfDay;
+    private LocalDateTime lookback;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TestTaskPrivatBankApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "exchange.providers.privatbank.enabled=false",
+                        "exchange.providers.monobank.enabled=false",
+                        "spring.cache.type=none",
+                        "spring.jpa.show-sql=false")
+                .run();
+        repository = context.getBean(AverageRateRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
+        lookback = startOfDay.minusDays(31);
+        List<AverageRate> rows = new ArrayList<>(ROWS_PER_DAY);
+        for (int i = 0; i < ROWS_PER_DAY; i++) {
+            AverageRate rate = new AverageRate();
+            rate.setCurrency(CURRENCY);
+            rate.setBuyRate(400_000 + (i % 100) * 100);
+            rate.setSellRate(405_000 + (i % 100) * 100);
+            rate.setTimestamp(startOfDay.plusMinutes(i));
+            rows.add(rate);
+        }
+        repository.bulkSave(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.getBean(JdbcTemplate.class).update("DELETE FROM average_rates WHERE currency = ?", CURRENCY);
+        context.close();
+    }
+
+    @Benchmark
+    public List<AverageRate> dayRangeEntities() {
+        return transactionTemplate.execute(status -> entityManager.createQuery("""
+                        SELECT r FROM AverageRate r
+                        WHERE r.currency = :currency AND r.timestamp > :since
+                        ORDER BY r.timestamp""", AverageRate.class)
+                .setParameter("currency", CURRENCY)
+                .setParameter("since", startOfDay)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<AverageRateView> dayRangeProjection() {
+        return transactionTemplate.execute(status ->
+                repository.findValidAfter(CURRENCY, AverageRateRepository.runStartBound(startOfDay), startOfDay));
+    }
+
+    @Benchmark
+    public List<AverageRate> latestEntity() {
+        return transactionTemplate.execute(status -> entityManager.createQuery("""
+                        SELECT r FROM AverageRate r
+                        WHERE r.currency = :currency AND r.timestamp > :since
+                        ORDER BY r.timestamp DESC""", AverageRate.class)
+                .setParameter("currency", CURRENCY)
+                .setParameter("since", lookback)
+                .setMaxResults(1)
+                .getResultList());
+    }
+
+    @Benchmark
+    public Optional<AverageRateView> latestProjection() {
+        return transactionTemplate.execute(status ->
+                repository.findTopByCurrencyAndTimestampAfterOrderByTimestampDesc(CURRENCY, lookback));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AverageRateReadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
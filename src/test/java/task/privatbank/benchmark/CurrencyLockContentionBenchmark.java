@@ -0,0 +1,82 @@
+package task.privatbank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import task.privatbank.currency.CurrencyCode;
+import task.privatbank.currency.CurrencyLocks;
+import task.privatbank.currency.CurrencyRegistry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the former single monitor of ExchangeRateService with the per-currency
+ * CurrencyLocks when every thread saves a different currency.
+ * <p>
+ * The critical section burns "work" CPU tokens in place of the repository and candle writes.
+ * With one global monitor the throughput stays flat as threads are added; with CurrencyLocks
+ * it should grow with the number of cores.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=task.privatbank.benchmark.CurrencyLockContentionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class CurrencyLockContentionBenchmark {
+
+    private static final List<String> CURRENCIES = List.of("USD", "EUR", "GBP", "PLN", "CHF", "JPY", "CAD", "CZK");
+
+    @Param({"100", "1000"})
+    private int work;
+
+    private final Object globalLock = new Object();
+    private final CurrencyLocks currencyLocks = new CurrencyLocks();
+    private final CurrencyRegistry currencyRegistry = new CurrencyRegistry();
+    private final AtomicInteger nextThread = new AtomicInteger();
+
+    /**
+     * The currency saved by one benchmark thread; threads take the currencies in turn.
+     */
+    @State(Scope.Thread)
+    public static class ThreadCurrency {
+        CurrencyCode currency;
+
+        @Setup
+        public void setUp(CurrencyLockContentionBenchmark benchmark) {
+            int index = benchmark.nextThread.getAndIncrement() % CURRENCIES.size();
+            currency = benchmark.currencyRegistry.require(CURRENCIES.get(index));
+        }
+    }
+
+    @Benchmark
+    public void globalMonitor(ThreadCurrency thread, Blackhole blackhole) {
+        synchronized (globalLock) {
+            Blackhole.consumeCPU(work);
+            blackhole.consume(thread.currency);
+        }
+    }
+
+    @Benchmark
+    public void currencyLocks(ThreadCurrency thread, Blackhole blackhole) {
+        try (CurrencyLocks.Held held = currencyLocks.lock(thread.currency)) {
+            Blackhole.consumeCPU(work);
+            blackhole.consume(thread.currency);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CurrencyLockContentionBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
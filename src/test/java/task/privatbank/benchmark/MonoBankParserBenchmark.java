@@ -0,0 +1,109 @@
+package task.privatbank.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import task.privatbank.dto.MonoBankRateDTO;
+import task.privatbank.provider.MonoBankRateParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding of the MonoBank /bank/currency payload through full DTO
+ * binding (the former bodyToFlux(MonoBankRateDTO.class) path) with the streaming
+ * MonoBankRateParser.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=task.privatbank.benchmark.MonoBankParserBenchmark
+ * <p>
+ * The GC profiler reports allocation per operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonoBankParserBenchmark {
+
+    /** Numeric codes appearing in the real payload, ~150 entries in total. */
+    private static final int[] CODES = {
+            840, 978, 826, 392, 756, 156, 784, 971, 8, 51, 973, 32, 36, 944, 50, 975, 48, 108, 96, 68,
+            986, 72, 933, 124, 976, 152, 170, 188, 192, 203, 262, 208, 12, 818, 230, 981, 936, 270, 324,
+            344, 191, 348, 360, 376, 356, 368, 364, 352, 400, 404, 417, 116, 410, 414, 398, 418, 422, 144,
+            434, 504, 498, 969, 807, 496, 478, 480, 454, 484, 458, 943, 516, 566, 558, 578, 524, 554, 512,
+            604, 608, 586, 985, 600, 634, 946, 941, 682, 690, 938, 752, 702, 694, 706, 968, 760, 748, 764,
+            972, 795, 788, 949, 901, 834, 800, 858, 860, 937, 704, 950, 952, 886, 710, 894, 232, 246, 90,
+            174, 262, 328, 332, 340, 388, 426, 430, 446, 462, 480, 548, 590, 598, 646, 654, 678, 776, 780
+    };
+
+    private static final List<String> TRACKED_PAIRS = List.of("840:980", "978:980");
+
+    private byte[] payload;
+    private ObjectMapper objectMapper;
+    private MonoBankRateParser parser;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < CODES.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"currencyCodeA\":").append(CODES[i])
+                    .append(",\"currencyCodeB\":980,\"date\":").append(1734559273 + i);
+            if (i < 12) {
+                json.append(",\"rateBuy\":").append(40 + i * 0.37).append(",\"rateSell\":").append(41 + i * 0.41);
+            } else {
+                json.append(",\"rateCross\":").append(0.5 + i * 0.13);
+            }
+            json.append('}');
+        }
+        // a few cross pairs that are not quoted against UAH
+        json.append(",{\"currencyCodeA\":978,\"currencyCodeB\":840,\"date\":1734611473,\"rateBuy\":1.04,\"rateSell\":1.05}]");
+        payload = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        parser = new MonoBankRateParser(TRACKED_PAIRS);
+    }
+
+    @Benchmark
+    public List<MonoBankRateDTO> dtoBinding() throws IOException {
+        return Arrays.stream(objectMapper.readValue(payload, MonoBankRateDTO[].class))
+                .filter(rate -> rate.getCurrencyCodeB() == 980)
+                .filter(rate -> rate.getCurrencyCodeA() == 840 || rate.getCurrencyCodeA() == 978)
+                .toList();
+    }
+
+    @Benchmark
+    public List<MonoBankRateDTO> streamingParser() throws IOException {
+        return parser.parse(payload);
+    }
+
+    /** Feeds the payload in 1 KB chunks, the way it arrives from the network. */
+    @Benchmark
+    public List<MonoBankRateDTO> streamingParserChunked() throws IOException {
+        MonoBankRateParser.Session session = parser.newSession();
+        for (int offset = 0; offset < payload.length; offset += 1024) {
+            session.feed(ByteBuffer.wrap(payload, offset, Math.min(1024, payload.length - offset)));
+        }
+        return session.finish();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MonoBankParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -12,14 +12,20 @@ import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.persistence.EntityNotFoundException;
 import task.privatbank.conrtoller.ExchangeRateController;
-import task.privatbank.model.AverageRate;
-import task.privatbank.repository.AverageRateRepository;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.dto.AverageRateView;
+import task.privatbank.dto.HistoryPage;
+import task.privatbank.model.CandleResolution;
+import task.privatbank.model.RateCandle;
+import task.privatbank.service.CandleService;
 import task.privatbank.service.ExchangeRateService;
+import task.privatbank.service.HistoryService;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,8 +48,19 @@ class ExchangeRateControllerTest {
 
         @Bean
         @Primary
-        AverageRateRepository averageRateRepository() {
-            return Mockito.mock(AverageRateRepository.class);
+        CandleService candleService() {
+            return Mockito.mock(CandleService.class);
+        }
+
+        @Bean
+        @Primary
+        HistoryService historyService() {
+            return Mockito.mock(HistoryService.class);
+        }
+
+        @Bean
+        CurrencyRegistry currencyRegistry() {
+            return new CurrencyRegistry();
         }
     }
 
@@ -54,7 +71,10 @@ class ExchangeRateControllerTest {
     private ExchangeRateService exchangeRateService;
 
     @Autowired
-    private AverageRateRepository averageRateRepository;
+    private CandleService candleService;
+
+    @Autowired
+    private HistoryService historyService;
 
     @Test
     @DisplayName("GET /api/exchange/dynamics/day?currency=USD => 200 OK и возвращает список изменений за день")
@@ -86,7 +106,7 @@ class ExchangeRateControllerTest {
     @DisplayName("GET /api/exchange/dynamics/hour?currency=EUR => 200 OK и возвращает изменение за последний час")
     void testGetLastHourChange_EUR() throws Exception {
         BDDMockito.given(exchangeRateService.getLastHourChange("EUR"))
-                .willReturn(0.35);
+                .willReturn(35L);
 
         mockMvc.perform(get("/api/exchange/dynamics/hour")
                         .param("currency", "EUR"))
@@ -95,17 +115,12 @@ class ExchangeRateControllerTest {
     }
 
     @Test
-    @DisplayName("GET /api/exchange/last?currency=USD => 200 OK и возвращает последний AverageRate")
+    @DisplayName("GET /api/exchange/last?currency=USD => 200 OK и возвращает последний средний курс")
     void testGetLastRate_USD() throws Exception {
-        AverageRate avgRate = new AverageRate();
-        avgRate.setId(1L);
-        avgRate.setCurrency("USD");
-        avgRate.setBuyRate(27.5);
-        avgRate.setSellRate(27.8);
-        avgRate.setTimestamp(LocalDateTime.now());
+        AverageRateView avgRate = new AverageRateView(1L, "USD", 275_000, 278_000, LocalDateTime.now());
 
-        BDDMockito.given(averageRateRepository.findTopByCurrencyOrderByTimestampDesc(eq("USD")))
-                .willReturn(Optional.of(avgRate));
+        BDDMockito.given(exchangeRateService.getLastRate(eq("USD")))
+                .willReturn(avgRate);
 
         mockMvc.perform(get("/api/exchange/last")
                         .param("currency", "USD"))
@@ -119,8 +134,8 @@ class ExchangeRateControllerTest {
     @Test
     @DisplayName("GET /api/exchange/last?currency=EUR => 404, если запись не найдена (EntityNotFoundException)")
     void testGetLastRate_NoData() throws Exception {
-        BDDMockito.given(averageRateRepository.findTopByCurrencyOrderByTimestampDesc(anyString()))
-                .willReturn(Optional.empty());
+        BDDMockito.given(exchangeRateService.getLastRate(anyString()))
+                .willThrow(new EntityNotFoundException("Records for currency EUR not found"));
 
         mockMvc.perform(get("/api/exchange/last")
                         .param("currency", "EUR"))
@@ -128,4 +143,82 @@ class ExchangeRateControllerTest {
                 .andExpect(jsonPath("$.error").value("Entity not found"))
                 .andExpect(jsonPath("$.message").value("Records for currency EUR not found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /api/exchange/last?currency=pln => 200 OK, принимается любой код ISO 4217")
+    void testGetLastRate_AnyIsoCurrency() throws Exception {
+        AverageRateView avgRate = new AverageRateView(2L, "PLN", 10.1, 10.3, LocalDateTime.now());
+
+        BDDMockito.given(exchangeRateService.getLastRate(eq("pln")))
+                .willReturn(avgRate);
+
+        mockMvc.perform(get("/api/exchange/last")
+                        .param("currency", "pln"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.currency").value("PLN"));
+    }
+
+    @Test
+    @DisplayName("GET /api/exchange/candles?currency=USD&resolution=DAY => 200 OK и возвращает свечи")
+    void testGetCandles_Day() throws Exception {
+        RateCandle candle = new RateCandle();
+        candle.setCurrency("USD");
+        candle.setResolution(CandleResolution.DAY);
+        candle.setBucketStart(LocalDateTime.of(2024, 1, 1, 0, 0));
+        candle.setOpenBuy(411_000);
+        candle.setHighBuy(416_000);
+        candle.setLowBuy(409_000);
+        candle.setCloseBuy(414_000);
+        candle.setTickCount(24);
+
+        BDDMockito.given(candleService.getCandles(eq("USD"), eq(CandleResolution.DAY),
+                        eq(LocalDateTime.of(2024, 1, 1, 0, 0)), eq(LocalDateTime.of(2024, 1, 31, 0, 0))))
+                .willReturn(List.of(candle));
+
+        mockMvc.perform(get("/api/exchange/candles")
+                        .param("currency", "USD")
+                        .param("resolution", "DAY")
+                        .param("from", "2024-01-01T00:00:00")
+                        .param("to", "2024-01-31T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].resolution").value("DAY"))
+                .andExpect(jsonPath("$[0].highBuy").value(41.6))
+                .andExpect(jsonPath("$[0].tickCount").value(24));
+    }
+
+    @Test
+    @DisplayName("GET /api/exchange/dynamics/day/all => 200 OK и возвращает изменения по всем валютам")
+    void testGetHourlyDynamicsForAll() throws Exception {
+        BDDMockito.given(exchangeRateService.getHourlyDynamicsForAll())
+                .willReturn(Map.of("USD", List.of("Time: 2024-01-01T10:00, change: 1.2%")));
+
+        mockMvc.perform(get("/api/exchange/dynamics/day/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.USD[0]").value("Time: 2024-01-01T10:00, change: 1.2%"));
+    }
+
+    @Test
+    @DisplayName("GET /api/exchange/history?currency=USD&size=2 => 200 OK и возвращает страницу с курсором")
+    void testGetHistory_Page() throws Exception {
+        AverageRateView rate = new AverageRateView(7L, "USD", 412_000, 417_000, LocalDateTime.of(2024, 5, 1, 12, 0));
+        BDDMockito.given(historyService.getHistory(eq("USD"), isNull(), isNull(), isNull(), eq(2)))
+                .willReturn(new HistoryPage(List.of(rate), "next-token"));
+
+        mockMvc.perform(get("/api/exchange/history")
+                        .param("currency", "USD")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(7L))
+                .andExpect(jsonPath("$.nextCursor").value("next-token"));
+    }
+
+    @Test
+    @DisplayName("GET /api/exchange/history?currency=USD&size=5000 => 400 (Bad Request, превышен размер страницы)")
+    void testGetHistory_PageSizeCap() throws Exception {
+        mockMvc.perform(get("/api/exchange/history")
+                        .param("currency", "USD")
+                        .param("size", "5000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation parameters error"));
+    }
+}
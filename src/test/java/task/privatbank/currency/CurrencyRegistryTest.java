@@ -0,0 +1,52 @@
+package task.privatbank.currency;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurrencyRegistryTest {
+
+    private final CurrencyRegistry registry = new CurrencyRegistry();
+
+    @Test
+    @DisplayName("byNumeric() and byAlpha() return the same interned instance")
+    void testLookup_Interned() {
+        // Act
+        CurrencyCode usd = registry.byNumeric(840);
+
+        // Assert
+        assertNotNull(usd);
+        assertEquals("USD", usd.alphaCode());
+        assertSame(usd, registry.byAlpha("USD"));
+        assertSame(usd, registry.byAlpha("usd"));
+        assertSame(registry.byNumeric(CurrencyRegistry.UAH), registry.byAlpha("UAH"));
+    }
+
+    @Test
+    @DisplayName("Unknown codes resolve to null and are rejected by require()")
+    void testLookup_Unknown() {
+        assertNull(registry.byNumeric(0));
+        assertNull(registry.byNumeric(1000));
+        assertNull(registry.byNumeric(-1));
+        assertNull(registry.byAlpha("AAA"));
+        assertNull(registry.byAlpha(null));
+        assertFalse(registry.isSupported("BTC"));
+        assertThrows(IllegalArgumentException.class, () -> registry.requireAll(List.of("USD", "AAA")));
+    }
+
+    @Test
+    @DisplayName("getAll() lists the known currencies ordered by numeric code")
+    void testGetAll_Ordered() {
+        // Act
+        List<CurrencyCode> all = registry.getAll();
+
+        // Assert
+        assertTrue(all.size() > 150);
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).numericCode() < all.get(i).numericCode());
+        }
+    }
+}
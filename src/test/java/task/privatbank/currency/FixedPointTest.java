@@ -0,0 +1,73 @@
+package task.privatbank.currency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointTest {
+
+    @Test
+    @DisplayName("parse() scales plain decimals and rounds the fifth decimal half up")
+    void testParse() {
+        assertEquals(412_500, FixedPoint.parse("41.25"));
+        assertEquals(412_500, FixedPoint.parse("41.25000"));
+        assertEquals(410_000, FixedPoint.parse("41"));
+        assertEquals(419_507, FixedPoint.parse("41.95065"));
+        assertEquals(419_506, FixedPoint.parse("41.950649"));
+        assertEquals(-5_000, FixedPoint.parse("-0.5"));
+        assertEquals(1_250, FixedPoint.parse("1.25e-1"));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("41,25"));
+        assertThrows(NumberFormatException.class, () -> FixedPoint.parse("."));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.parse("99999999999999999"));
+    }
+
+    @Test
+    @DisplayName("format() prints rates like a double and percentages with two decimals at most")
+    void testFormat() {
+        assertEquals("41.25", FixedPoint.format(412_500));
+        assertEquals("41.0", FixedPoint.format(410_000));
+        assertEquals("0.0005", FixedPoint.format(5));
+        assertEquals("1.85", FixedPoint.formatBasisPoints(185));
+        assertEquals("-0.25", FixedPoint.formatBasisPoints(-25));
+        assertEquals("0.0", FixedPoint.formatBasisPoints(0));
+        assertEquals(new BigDecimal("41.2500"), FixedPoint.toBigDecimal(412_500));
+    }
+
+    @Test
+    @DisplayName("average() and changeBasisPoints() round half away from zero")
+    void testArithmetic() {
+        assertEquals(270_500, FixedPoint.average(270_000 + 271_000, 2));
+        assertEquals(2, FixedPoint.average(3, 2));
+        assertEquals(-2, FixedPoint.average(-3, 2));
+        assertEquals(185, FixedPoint.changeBasisPoints(275_000, 270_000));
+        assertEquals(-182, FixedPoint.changeBasisPoints(270_000, 275_000));
+    }
+
+    @Test
+    @DisplayName("@FixedPointRate reads decimal numbers and strings and writes decimal numbers")
+    void testJson() throws Exception {
+        // Arrange
+        ObjectMapper mapper = new ObjectMapper();
+
+        // Act
+        Quote quote = mapper.readValue("{\"buy\":\"41.10000\",\"sale\":41.6}", Quote.class);
+
+        // Assert
+        assertEquals(411_000, quote.buy);
+        assertEquals(416_000, quote.sale);
+        assertEquals("{\"buy\":41.1,\"sale\":41.6}", mapper.writeValueAsString(quote));
+    }
+
+    static class Quote {
+
+        @FixedPointRate
+        public long buy;
+
+        @FixedPointRate
+        public long sale;
+    }
+}
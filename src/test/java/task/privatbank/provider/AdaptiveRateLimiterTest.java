@@ -0,0 +1,80 @@
+package task.privatbank.provider;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private AdaptiveRateLimiter createLimiter(int burst) {
+        return new AdaptiveRateLimiter("test", burst, Duration.ofSeconds(1), Duration.ofMillis(500),
+                Duration.ofSeconds(8), 2.0, 0.5, clock::get);
+    }
+
+    @Test
+    @DisplayName("reserve() schedules calls one interval apart once the burst is used")
+    void testReserve_SchedulesAfterBurst() {
+        AdaptiveRateLimiter limiter = createLimiter(2);
+
+        assertEquals(0, limiter.reserve(10 * SECOND));
+        assertEquals(0, limiter.reserve(10 * SECOND));
+        assertEquals(SECOND, limiter.reserve(10 * SECOND));
+        assertEquals(2 * SECOND, limiter.reserve(10 * SECOND));
+    }
+
+    @Test
+    @DisplayName("reserve() rejects without reserving when the wait exceeds the limit")
+    void testReserve_RejectsBeyondMaxWait() {
+        AdaptiveRateLimiter limiter = createLimiter(1);
+        limiter.reserve(0);
+
+        assertEquals(-1, limiter.reserve(SECOND / 2));
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(SECOND, limiter.reserve(SECOND));
+    }
+
+    @Test
+    @DisplayName("onThrottled() lowers the rate and honors Retry-After")
+    void testOnThrottled_BacksOff() {
+        AdaptiveRateLimiter limiter = createLimiter(1);
+        limiter.reserve(0);
+
+        limiter.onThrottled(Duration.ofSeconds(5));
+
+        assertEquals(0.5, limiter.getRate(), 1e-9);
+        assertEquals(1, limiter.getThrottledCount());
+        // 5s Retry-After pause plus one full 2s interval to refill the empty bucket
+        assertEquals(7 * SECOND, limiter.reserve(10 * SECOND));
+    }
+
+    @Test
+    @DisplayName("onSuccess() probes for a higher rate up to the minimum interval")
+    void testOnSuccess_IncreasesRateWithinBounds() {
+        AdaptiveRateLimiter limiter = createLimiter(1);
+
+        limiter.onSuccess();
+        limiter.onSuccess();
+
+        assertEquals(2.0, limiter.getRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("tryAcquire() takes a permit only when one is available")
+    void testTryAcquire() {
+        AdaptiveRateLimiter limiter = createLimiter(1);
+
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        clock.addAndGet(SECOND);
+        assertTrue(limiter.tryAcquire());
+    }
+}
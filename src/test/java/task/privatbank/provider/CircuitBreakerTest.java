@@ -0,0 +1,90 @@
+package task.privatbank.provider;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(100).toNanos();
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 4, 4, 50, 75,
+            Duration.ofSeconds(1), Duration.ofSeconds(30), clock::get);
+
+    @Test
+    @DisplayName("Breaker opens once the failure rate reaches the threshold")
+    void testOpensOnFailureRate() {
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+        breaker.onError(FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onError(FAST);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("Breaker opens once the slow call rate reaches the threshold")
+    void testOpensOnSlowCalls() {
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(FAST);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("Old outcomes leave the sliding window")
+    void testSlidingWindow() {
+        breaker.onError(FAST);
+        for (int i = 0; i < 8; i++) {
+            breaker.onSuccess(FAST);
+        }
+
+        assertEquals(0.0, breaker.getFailureRate());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("After the open duration a single probe decides whether the breaker closes")
+    void testHalfOpenProbe() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(FAST);
+        }
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onSuccess(FAST);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("A failed probe opens the breaker again")
+    void testHalfOpenProbeFails() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(FAST);
+        }
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquirePermission());
+
+        breaker.onError(FAST);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+}
@@ -0,0 +1,93 @@
+package task.privatbank.provider;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import task.privatbank.currency.FixedPoint;
+import task.privatbank.dto.MonoBankRateDTO;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonoBankRateParserTest {
+
+    private static final String PAYLOAD = """
+            [
+              {"currencyCodeA":840,"currencyCodeB":980,"date":1734559273,"rateBuy":41.45,"rateSell":41.9507},
+              {"currencyCodeA":978,"currencyCodeB":980,"date":1734611473,"rateBuy":43.3,"rateSell":43.9006},
+              {"currencyCodeA":978,"currencyCodeB":840,"date":1734611473,"rateBuy":1.04,"rateSell":1.05},
+              {"currencyCodeA":826,"currencyCodeB":980,"date":1734624357,"rateCross":53.1537},
+              {"rateBuy":11.1,"rateSell":11.2,"currencyCodeB":980,"currencyCodeA":985,"extra":{"currencyCodeA":840}}
+            ]
+            """;
+
+    private final MonoBankRateParser parser = new MonoBankRateParser(List.of("840:980", "978:980", "985:980"));
+
+    @Test
+    @DisplayName("parse() materializes only tracked pairs")
+    void testParse_TrackedPairsOnly() throws Exception {
+        // Act
+        List<MonoBankRateDTO> rates = parser.parse(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+
+        // Assert
+        assertEquals(3, rates.size());
+        assertEquals(840, rates.get(0).getCurrencyCodeA());
+        assertEquals(FixedPoint.parse("41.45"), rates.get(0).getRateBuy());
+        assertEquals(FixedPoint.parse("41.9507"), rates.get(0).getRateSell());
+        assertEquals(978, rates.get(1).getCurrencyCodeA());
+        assertEquals(980, rates.get(1).getCurrencyCodeB());
+    }
+
+    @Test
+    @DisplayName("parse() reads rates that precede the currency codes and ignores nested objects")
+    void testParse_FieldOrderAndNesting() throws Exception {
+        // Act
+        List<MonoBankRateDTO> rates = parser.parse(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+
+        // Assert
+        MonoBankRateDTO pln = rates.get(2);
+        assertEquals(985, pln.getCurrencyCodeA());
+        assertEquals(FixedPoint.parse("11.1"), pln.getRateBuy());
+        assertEquals(FixedPoint.parse("11.2"), pln.getRateSell());
+    }
+
+    @Test
+    @DisplayName("Session decodes a payload split at arbitrary chunk boundaries")
+    void testSession_ByteByByte() throws Exception {
+        // Arrange
+        byte[] payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        MonoBankRateParser.Session session = parser.newSession();
+
+        // Act
+        for (byte b : payload) {
+            session.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+        List<MonoBankRateDTO> rates = session.finish();
+
+        // Assert
+        assertEquals(parser.parse(payload), rates);
+    }
+
+    @Test
+    @DisplayName("parse() with a '*:980' pair keeps every UAH quote, including cross-only ones")
+    void testParse_WildcardBase() throws Exception {
+        // Arrange
+        MonoBankRateParser wildcard = new MonoBankRateParser(List.of("*:980"));
+
+        // Act
+        List<MonoBankRateDTO> rates = wildcard.parse(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+
+        // Assert
+        assertEquals(List.of(840, 978, 826, 985), rates.stream().map(MonoBankRateDTO::getCurrencyCodeA).toList());
+        assertEquals(FixedPoint.parse("53.1537"), rates.get(2).getRateCross());
+        assertEquals(0, rates.get(2).getRateBuy());
+    }
+
+    @Test
+    @DisplayName("Constructor rejects malformed tracked pairs")
+    void testConstructor_InvalidPair() {
+        assertThrows(IllegalArgumentException.class, () -> new MonoBankRateParser(List.of("840-980")));
+    }
+}
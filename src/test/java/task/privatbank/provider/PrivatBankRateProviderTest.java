@@ -0,0 +1,54 @@
+package task.privatbank.provider;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.currency.FixedPoint;
+import task.privatbank.dto.CurrencyRateDTO;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrivatBankRateProviderTest {
+
+    private static final String PAYLOAD = """
+            [
+              {"ccy":"EUR","base_ccy":"UAH","buy":"43.30","sale":"44.20"},
+              {"ccy":"USD","base_ccy":"UAH","buy":"41.45","sale":"41.95"},
+              {"ccy":"EUR","base_ccy":"USD","buy":"1.04","sale":"1.05"},
+              {"ccy":"BTC","base_ccy":"UAH","buy":"4000000","sale":"4100000"}
+            ]
+            """;
+
+    @Test
+    @DisplayName("fetchRates() keeps only quotes of known currencies against UAH")
+    void testFetchRates_UahBaseOnly() {
+        // Arrange
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(PAYLOAD)
+                        .build()))
+                .build();
+        PrivatBankRateProvider provider = new PrivatBankRateProvider(webClient, new ExchangeProperties(),
+                new CurrencyRegistry());
+
+        // Act
+        List<CurrencyRateDTO> rates = provider.fetchRates().block(Duration.ofSeconds(5));
+
+        // Assert
+        assertNotNull(rates);
+        assertEquals(List.of("EUR", "USD"), rates.stream().map(CurrencyRateDTO::getCcy).toList());
+        assertEquals(FixedPoint.parse("43.30"), rates.get(0).getBuy());
+        assertEquals(840, rates.get(1).getCurrency().numericCode());
+    }
+}
@@ -0,0 +1,160 @@
+package task.privatbank.provider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import task.privatbank.config.ExchangeProperties;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RequestHedger hedger = new RequestHedger(meterRegistry);
+
+    private ExchangeProperties.Hedge createSettings(double budgetPercent) {
+        ExchangeProperties.Hedge settings = new ExchangeProperties.Hedge();
+        settings.setEnabled(true);
+        settings.setMinDelay(Duration.ofMillis(50));
+        settings.setMaxDelay(Duration.ofMillis(50));
+        settings.setBudgetPercent(budgetPercent);
+        return settings;
+    }
+
+    // First attempt hangs for a long time, every further attempt answers at once
+    private Supplier<Mono<String>> slowThenFast(AtomicInteger attempts) {
+        return () -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(5)).thenReturn("slow")
+                : Mono.just("fast");
+    }
+
+    @Test
+    @DisplayName("call() sends a hedge after the delay and takes the first answer")
+    void testCall_HedgeWins() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedger.call("test", createSettings(100), slowThenFast(attempts), () -> true)
+                .block(Duration.ofSeconds(2));
+
+        assertEquals("fast", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, meterRegistry.get("exchange.provider.hedge.won").counter().count());
+    }
+
+    @Test
+    @DisplayName("call() does not hedge without a rate limit permit")
+    void testCall_NoPermit() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        // block() times out: only the slow first attempt is in flight
+        assertThrows(IllegalStateException.class, () -> hedger.call("test", createSettings(100),
+                slowThenFast(attempts), () -> false).block(Duration.ofMillis(300)));
+
+        assertEquals(1, attempts.get());
+        assertEquals(1.0, meterRegistry.get("exchange.provider.hedge.skipped").counter().count());
+    }
+
+    @Test
+    @DisplayName("call() does not hedge once the budget is used up")
+    void testCall_BudgetExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> hedger.call("test", createSettings(50),
+                slowThenFast(attempts), () -> true).block(Duration.ofMillis(300)));
+
+        assertEquals(1, attempts.get());
+        assertEquals(1.0, meterRegistry.get("exchange.provider.hedge.skipped").counter().count());
+    }
+
+    @Test
+    @DisplayName("call() waits for a pending hedge when the first attempt fails, and takes its answer")
+    void testCall_PrimaryFailsHedgeWins() {
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<Mono<String>> attempt = () -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(100)).then(Mono.error(new IllegalStateException("primary failed")))
+                : Mono.delay(Duration.ofMillis(200)).thenReturn("hedge");
+
+        String result = hedger.call("test", createSettings(100), attempt, () -> true)
+                .block(Duration.ofSeconds(2));
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, meterRegistry.get("exchange.provider.hedge.won").counter().count());
+    }
+
+    @Test
+    @DisplayName("call() fails only after both the first attempt and the hedge failed")
+    void testCall_BothFail() {
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<Mono<String>> attempt = () -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(100)).then(Mono.error(new IllegalStateException("primary failed")))
+                : Mono.delay(Duration.ofMillis(200)).then(Mono.error(new IllegalStateException("hedge failed")));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> hedger.call("test",
+                createSettings(100), attempt, () -> true).block(Duration.ofSeconds(2)));
+
+        assertEquals("primary failed", error.getMessage());
+        assertEquals("hedge failed", error.getSuppressed()[0].getMessage());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    @DisplayName("call() disposes the hedge timer as soon as the first attempt answers")
+    void testCall_PrimaryAnswersTimerDisposed() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger permits = new AtomicInteger();
+        AtomicInteger tasksRun = new AtomicInteger();
+        Schedulers.onScheduleHook("hedge-timer", task -> () -> {
+            tasksRun.incrementAndGet();
+            task.run();
+        });
+        try {
+            String result = hedger.call("test", createSettings(100), () -> {
+                attempts.incrementAndGet();
+                return Mono.delay(Duration.ofMillis(10)).thenReturn("primary");
+            }, () -> permits.incrementAndGet() > 0).block(Duration.ofSeconds(2));
+            int runBeforeDelay = tasksRun.get();
+            Thread.sleep(200);
+
+            assertEquals("primary", result);
+            // the 50 ms hedge timer never ran: no task ran after the answer
+            assertEquals(runBeforeDelay, tasksRun.get());
+            assertEquals(1, attempts.get());
+            assertEquals(0, permits.get());
+        } finally {
+            Schedulers.resetOnScheduleHook("hedge-timer");
+        }
+    }
+
+    @Test
+    @DisplayName("call() records the latency of the first attempt even when the hedge wins")
+    void testCall_HedgeWinsPrimaryLatencyRecorded() throws InterruptedException {
+        ExchangeProperties.Hedge settings = createSettings(100);
+        settings.setMinDelay(Duration.ofMillis(1));
+        settings.setMaxDelay(Duration.ofMillis(100));
+        settings.setMinSamples(1);
+        settings.setPercentile(50);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch primaryDone = new CountDownLatch(1);
+        Supplier<Mono<String>> attempt = () -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(400)).thenReturn("slow").doFinally(signal -> primaryDone.countDown())
+                : Mono.just("fast");
+
+        String result = hedger.call("test", settings, attempt, () -> true).block(Duration.ofSeconds(2));
+        assertTrue(primaryDone.await(2, TimeUnit.SECONDS));
+        hedger.call("test", settings, () -> Mono.just("next"), () -> true).block(Duration.ofSeconds(2));
+
+        assertEquals("fast", result);
+        // the only sample is the 400 ms first attempt, not the instant hedge, so the delay is clamped to the maximum
+        assertEquals(0.1, meterRegistry.get("exchange.provider.hedge.delay").gauge().value(), 1e-9);
+    }
+}
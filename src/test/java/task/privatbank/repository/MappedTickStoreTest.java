@@ -0,0 +1,119 @@
+package task.privatbank.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.dto.AverageRateView;
+import task.privatbank.model.AverageRate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTickStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    private MappedTickStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("findLatest() and findSince() binary-search the appended ticks")
+    void testReads() {
+        // Arrange
+        store.append(List.of(tick("USD", 0, 410_000), tick("USD", 1, 411_000), tick("EUR", 1, 440_000),
+                tick("USD", 2, 412_000), tick("USD", 3, 413_000)));
+
+        // Act
+        List<AverageRateView> top2 = store.findLatest("USD", start, 2);
+        List<AverageRateView> since = store.findSince("USD", start.plusHours(1));
+
+        // Assert
+        assertEquals(List.of(413_000L, 412_000L), top2.stream().map(AverageRateView::buyRate).toList());
+        assertEquals(start.plusHours(3), top2.get(0).timestamp());
+        assertEquals(List.of(412_000L, 413_000L), since.stream().map(AverageRateView::buyRate).toList());
+        assertEquals(440_000L, store.findLatest("EUR", start).orElseThrow().buyRate());
+        assertTrue(store.findLatest("USD", start.plusHours(3)).isEmpty());
+        assertTrue(store.findLatest("GBP", start).isEmpty());
+    }
+
+    @Test
+    @DisplayName("append() grows the mapping, skips out-of-order ticks, overwrites the last one and survives a reopen")
+    void testAppend_GrowAndReopen() throws Exception {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            store.append(List.of(tick("USD", i, 410_000 + i)));
+        }
+
+        // Act
+        int appended = store.append(List.of(tick("USD", 5, 1)));
+        int overwritten = store.append(List.of(tick("USD", 9, 420_009)));
+        store.close();
+        store = open();
+
+        // Assert
+        assertEquals(0, appended);
+        assertEquals(1, overwritten);
+        List<AverageRateView> ticks = store.findSince("USD", start.minusHours(1));
+        assertEquals(10, ticks.size());
+        assertEquals(420_009L, ticks.get(9).buyRate());
+        assertEquals(425_009L, ticks.get(9).sellRate());
+    }
+
+    @Test
+    @DisplayName("findRange() and transferTo() copy the records of [from, to] as they are stored")
+    void testRangeTransfer() throws Exception {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            store.append(List.of(tick("USD", i, 410_000 + i)));
+        }
+
+        // Act
+        MappedTickStore.TickRange range = store.findRange("USD", start.plusHours(1), start.plusHours(3));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long transferred = store.transferTo(range, Channels.newChannel(output));
+
+        // Assert
+        assertEquals(3L * MappedTickStore.RECORD_SIZE, transferred);
+        ByteBuffer records = ByteBuffer.wrap(output.toByteArray());
+        assertEquals(410_001L, records.getLong(Long.BYTES));
+        assertEquals(410_003L, records.getLong(2 * MappedTickStore.RECORD_SIZE + Long.BYTES));
+        assertEquals(0, store.findRange("USD", start.plusDays(1), start.plusDays(2)).length());
+    }
+
+    private MappedTickStore open() throws Exception {
+        ExchangeProperties properties = new ExchangeProperties();
+        properties.getStorage().getTickStore().setDirectory(directory);
+        properties.getStorage().getTickStore().setInitialCapacity(4);
+        return new MappedTickStore(properties);
+    }
+
+    private AverageRate tick(String currency, int hour, long buy) {
+        AverageRate rate = new AverageRate();
+        rate.setCurrency(currency);
+        rate.setBuyRate(buy);
+        rate.setSellRate(buy + 5_000);
+        rate.setTimestamp(start.plusHours(hour));
+        return rate;
+    }
+}
@@ -0,0 +1,93 @@
+package task.privatbank.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import task.privatbank.config.ExchangeProperties;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionMaintenanceJobTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExchangeProperties exchangeProperties = new ExchangeProperties();
+
+    private PartitionMaintenanceJob job;
+
+    @BeforeEach
+    void setUp() {
+        exchangeProperties.getStorage().setPremakeMonths(2);
+        Clock clock = Clock.fixed(Instant.parse("2026-10-16T10:00:00Z"), ZoneOffset.UTC);
+        job = new PartitionMaintenanceJob(jdbcTemplate, exchangeProperties, clock);
+    }
+
+    @Test
+    @DisplayName("maintain() creates only the missing upcoming partitions")
+    void testMaintain_CreatesUpcoming() {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("average_rates")))
+                .thenReturn(List.of("average_rates_default", "average_rates_p202610"));
+
+        // Act
+        job.maintain();
+
+        // Assert
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS average_rates_p202611 PARTITION OF average_rates"
+                + " FOR VALUES FROM ('2026-11-01') TO ('2026-12-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS average_rates_p202612 PARTITION OF average_rates"
+                + " FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(jdbcTemplate, never()).execute(contains("average_rates_p202610"));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP"));
+    }
+
+    @Test
+    @DisplayName("maintain() drops partitions that lie entirely before the retention cutoff")
+    void testMaintain_DropsExpired() {
+        // Arrange
+        exchangeProperties.getStorage().setRetention(Period.ofYears(2));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("average_rates")))
+                .thenReturn(List.of("average_rates_p202409", "average_rates_p202410",
+                        "average_rates_p202610", "average_rates_p202611", "average_rates_p202612"));
+
+        // Act
+        job.maintain();
+
+        // Assert
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS average_rates_p202409");
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS average_rates_p202410");
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE"));
+    }
+
+    @Test
+    @DisplayName("maintain() drops partitions only by retention, whatever the averages policy of the retention job")
+    void testMaintain_IgnoresPurgePolicy() {
+        // Arrange
+        exchangeProperties.getStorage().setRetention(Period.ofYears(2));
+        exchangeProperties.getStorage().getPurge().setEnabled(true);
+        exchangeProperties.getStorage().getPurge().setAverages(Duration.ofDays(7));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("average_rates")))
+                .thenReturn(List.of("average_rates_p202609", "average_rates_p202610",
+                        "average_rates_p202611", "average_rates_p202612"));
+
+        // Act
+        job.maintain();
+
+        // Assert
+        verify(jdbcTemplate, never()).execute(startsWith("DROP"));
+    }
+}
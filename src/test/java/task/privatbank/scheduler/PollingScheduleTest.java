@@ -0,0 +1,53 @@
+package task.privatbank.scheduler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PollingScheduleTest {
+
+    @Test
+    @DisplayName("next() fires on the next wall-clock multiple of the interval when aligned")
+    void testNext_Aligned() {
+        PollingSchedule schedule = new PollingSchedule(Duration.ofMinutes(15), Duration.ZERO, true);
+
+        Instant next = schedule.next(Instant.parse("2024-12-19T10:07:31Z"));
+
+        assertEquals(Instant.parse("2024-12-19T10:15:00Z"), next);
+    }
+
+    @Test
+    @DisplayName("next() fires one interval later when not aligned")
+    void testNext_NotAligned() {
+        PollingSchedule schedule = new PollingSchedule(Duration.ofSeconds(30), Duration.ZERO, false);
+
+        Instant next = schedule.next(Instant.parse("2024-12-19T10:07:31Z"));
+
+        assertEquals(Instant.parse("2024-12-19T10:08:01Z"), next);
+    }
+
+    @Test
+    @DisplayName("next() adds a jitter shorter than the configured bound")
+    void testNext_Jitter() {
+        PollingSchedule schedule = new PollingSchedule(Duration.ofMinutes(1), Duration.ofSeconds(5), true, new Random(42));
+        Instant slot = Instant.parse("2024-12-19T10:08:00Z");
+
+        for (int i = 0; i < 100; i++) {
+            Instant next = schedule.next(Instant.parse("2024-12-19T10:07:31Z"));
+            assertFalse(next.isBefore(slot));
+            assertTrue(next.isBefore(slot.plusSeconds(5)));
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor rejects a jitter that is not shorter than the interval")
+    void testConstructor_InvalidJitter() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PollingSchedule(Duration.ofSeconds(10), Duration.ofSeconds(10), true));
+    }
+}
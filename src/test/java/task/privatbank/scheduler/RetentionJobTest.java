@@ -0,0 +1,137 @@
+package task.privatbank.scheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.model.CandleResolution;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RetentionJobTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExchangeProperties exchangeProperties = new ExchangeProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RetentionJob job;
+
+    @BeforeEach
+    void setUp() {
+        ExchangeProperties.Purge purge = exchangeProperties.getStorage().getPurge();
+        purge.setEnabled(true);
+        purge.setChunkSize(2);
+        purge.setChunkPause(Duration.ZERO);
+        purge.setMaxReplicationLag(Duration.ZERO);
+        Clock clock = Clock.fixed(Instant.parse("2026-10-16T10:00:00Z"), ZoneOffset.UTC);
+        job = new RetentionJob(jdbcTemplate, exchangeProperties, meterRegistry, clock);
+    }
+
+    @Test
+    @DisplayName("purge() deletes the expired averages of a currency in chunks until a chunk comes back short")
+    void testPurge_AveragesInChunks() {
+        // Arrange
+        exchangeProperties.getStorage().getPurge().setAverages(Duration.ofDays(7));
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.of(2026, 10, 9, 0, 0));
+        Iterator<Integer> usdChunks = List.of(2, 2, 1).iterator();
+        when(jdbcTemplate.queryForList(contains("FROM average_rates"), eq(String.class))).thenReturn(List.of("EUR", "USD"));
+        when(jdbcTemplate.update(startsWith("DELETE FROM average_rates"), any(Object[].class)))
+                .thenAnswer(invocation -> "USD".equals(invocation.getArgument(1)) ? usdChunks.next() : 0);
+
+        // Act
+        job.purge();
+
+        // Assert
+        verify(jdbcTemplate, times(3))
+                .update(startsWith("DELETE FROM average_rates"), eq("USD"), eq("USD"), eq(cutoff), eq(2));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM average_rates"), eq("EUR"), eq("EUR"), eq(cutoff), eq(2));
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM rate_candles"), any(Object[].class));
+        verify(jdbcTemplate, never()).queryForList(contains("FROM rate_candles"), eq(String.class));
+        assertEquals(5.0, meterRegistry.get("exchange.retention.deleted")
+                .tag("table", "average_rates").tag("resolution", "raw").counter().count());
+        assertEquals(1.0, meterRegistry.get("exchange.retention.progress").gauge().value());
+    }
+
+    @Test
+    @DisplayName("purge() deletes candles only of the resolutions with a policy, up to the bucket of the cutoff")
+    void testPurge_CandlesPerResolution() {
+        // Arrange
+        exchangeProperties.getStorage().getPurge().getCandles().put(CandleResolution.MINUTE, Duration.ofDays(30));
+        exchangeProperties.getStorage().getPurge().getCandles().put(CandleResolution.HOUR, Duration.ZERO);
+        when(jdbcTemplate.queryForList(contains("FROM rate_candles"), eq(String.class))).thenReturn(List.of("USD"));
+
+        // Act
+        job.purge();
+
+        // Assert
+        verify(jdbcTemplate).update(startsWith("DELETE FROM rate_candles"), eq("USD"), eq("MINUTE"), eq("USD"), eq("MINUTE"),
+                eq(Timestamp.valueOf(LocalDateTime.of(2026, 9, 16, 10, 0))), eq(2));
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM rate_candles"), any(), eq("HOUR"), any(), any(), any(), any());
+        verify(jdbcTemplate, never()).update(startsWith("DELETE FROM average_rates"), any(Object[].class));
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(String.class));
+    }
+
+    @Test
+    @DisplayName("purge() holds the next chunk back while the replicas lag behind")
+    void testPurge_ThrottledByReplicationLag() {
+        // Arrange
+        ExchangeProperties.Purge purge = exchangeProperties.getStorage().getPurge();
+        purge.setCurrencyRates(Duration.ofDays(7));
+        purge.setMaxReplicationLag(Duration.ofMillis(10));
+        when(jdbcTemplate.update(startsWith("DELETE FROM currency_rates"), any(Timestamp.class), eq(2)))
+                .thenReturn(2, 0);
+        when(jdbcTemplate.queryForObject(contains("pg_stat_replication"), eq(Double.class)))
+                .thenReturn(5.0, 0.0);
+
+        // Act
+        job.purge();
+
+        // Assert
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM currency_rates"), any(Timestamp.class), eq(2));
+        verify(jdbcTemplate, times(2)).queryForObject(contains("pg_stat_replication"), eq(Double.class));
+        assertEquals(1.0, meterRegistry.get("exchange.retention.throttled").counter().count());
+        assertEquals(2.0, meterRegistry.get("exchange.retention.deleted")
+                .tag("table", "currency_rates").counter().count());
+    }
+
+    @Test
+    @DisplayName("purge() stopped by max-run-time before a step came back short leaves the run partial")
+    void testPurge_DeadlineLeavesRunPartial() {
+        // Arrange
+        ExchangeProperties.Purge purge = exchangeProperties.getStorage().getPurge();
+        purge.setCurrencyRates(Duration.ofDays(7));
+        purge.setMaxRunTime(Duration.ofMillis(50));
+        purge.setChunkPause(Duration.ofMillis(100));
+        when(jdbcTemplate.update(startsWith("DELETE FROM currency_rates"), any(Timestamp.class), eq(2)))
+                .thenReturn(2);
+
+        // Act
+        job.purge();
+
+        // Assert
+        verify(jdbcTemplate, times(1)).update(startsWith("DELETE FROM currency_rates"), any(Timestamp.class), eq(2));
+        assertEquals(2.0, meterRegistry.get("exchange.retention.deleted")
+                .tag("table", "currency_rates").counter().count());
+        assertEquals(0.0, meterRegistry.get("exchange.retention.progress").gauge().value());
+    }
+}
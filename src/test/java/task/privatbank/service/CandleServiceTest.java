@@ -0,0 +1,181 @@
+package task.privatbank.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.currency.FixedPoint;
+import task.privatbank.model.AverageRate;
+import task.privatbank.model.CandleResolution;
+import task.privatbank.repository.RateCandleRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CandleServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private RateCandleRepository rateCandleRepository;
+
+    @Spy
+    private CurrencyRegistry currencyRegistry = new CurrencyRegistry();
+
+    @Spy
+    private ExchangeProperties exchangeProperties = new ExchangeProperties();
+
+    @InjectMocks
+    private CandleService candleService;
+
+    @Test
+    @DisplayName("record() recomputes minutes from the averages and rolls hours and days up, one batch per resolution")
+    @SuppressWarnings("unchecked")
+    void testRecord_OneBatchPerResolution() {
+        // Arrange
+        LocalDateTime at = LocalDateTime.of(2024, 3, 5, 14, 0);
+        AverageRate usd = createAverageRate("USD", 41.2, 41.7, at);
+        AverageRate eur = createAverageRate("EUR", 44.1, 44.8, at);
+
+        // Act
+        candleService.record(List.of(usd, eur));
+
+        // Assert
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(statements.capture(), batches.capture());
+        assertTrue(statements.getAllValues().get(0).contains("FROM average_rates"));
+        assertTrue(statements.getAllValues().get(1).contains("FROM rate_candles"));
+        assertTrue(statements.getAllValues().get(2).contains("FROM rate_candles"));
+
+        List<Object[]> minutes = batches.getAllValues().get(0);
+        assertEquals(2, minutes.size());
+        LocalDateTime lastInstant = LocalDateTime.of(2024, 3, 5, 14, 0, 59, 999_999_000);
+        BigDecimal interval = new BigDecimal("3600.000000000");
+        assertArrayEquals(new Object[]{at, interval, lastInstant, interval,
+                        "USD", LocalDateTime.of(2024, 3, 5, 0, 0), lastInstant, at,
+                        "MINUTE", at, interval, interval},
+                minutes.get(0));
+        assertArrayEquals(new Object[]{"HOUR", at, "USD", "MINUTE", at, at.plusHours(1)},
+                batches.getAllValues().get(1).get(0));
+        LocalDateTime day = LocalDateTime.of(2024, 3, 5, 0, 0);
+        assertArrayEquals(new Object[]{"DAY", day, "EUR", "HOUR", day, day.plusDays(1)},
+                batches.getAllValues().get(2).get(1));
+    }
+
+    @Test
+    @DisplayName("record() rolls the whole DAY candle up from its HOUR candles on every write of the day")
+    @SuppressWarnings("unchecked")
+    void testRecord_DayAcrossWrites() {
+        // Arrange
+        LocalDateTime day = LocalDateTime.of(2024, 3, 5, 0, 0);
+        List<AverageRate> writes = List.of(createAverageRate("USD", 41.2, 41.7, day.plusHours(9)),
+                createAverageRate("USD", 41.9, 42.4, day.plusHours(14)),
+                createAverageRate("USD", 40.8, 41.3, day.plusHours(14)));
+
+        // Act
+        for (AverageRate write : writes) {
+            candleService.record(List.of(write));
+        }
+
+        // Assert: each write replaces the DAY candle with the aggregate of all HOUR candles of the day,
+        // so earlier hours stay in it and a rewritten hour replaces its old values
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(3 * writes.size())).batchUpdate(statements.capture(), batches.capture());
+        for (int write = 0; write < writes.size(); write++) {
+            List<Object[]> dayBatch = batches.getAllValues().get(3 * write + 2);
+            assertEquals(1, dayBatch.size());
+            assertArrayEquals(new Object[]{"DAY", day, "USD", "HOUR", day, day.plusDays(1)}, dayBatch.get(0));
+            List<Object[]> hourBatch = batches.getAllValues().get(3 * write + 1);
+            LocalDateTime hour = writes.get(write).getTimestamp();
+            assertArrayEquals(new Object[]{"HOUR", hour, "USD", "MINUTE", hour, hour.plusHours(1)}, hourBatch.get(0));
+        }
+        String rollup = statements.getAllValues().get(2);
+        assertTrue(rollup.contains("MAX(high_buy), MIN(low_buy)"));
+        assertTrue(rollup.contains("SUM(tick_count)"));
+        String updates = rollup.substring(rollup.indexOf("DO UPDATE SET"));
+        assertFalse(updates.contains("rate_candles."));
+    }
+
+    @Test
+    @DisplayName("record() is idempotent: writing the same average twice recomputes the same candles")
+    @SuppressWarnings("unchecked")
+    void testRecord_SameAverageTwice() {
+        // Arrange
+        AverageRate usd = createAverageRate("USD", 41.2, 41.7, LocalDateTime.of(2024, 3, 5, 14, 0));
+
+        // Act
+        candleService.record(List.of(usd, usd));
+        candleService.record(List.of(usd));
+
+        // Assert
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(6)).batchUpdate(statements.capture(), batches.capture());
+        // the repeated average recomputes each bucket once, with the same parameters both times
+        for (int i = 0; i < 3; i++) {
+            List<Object[]> first = batches.getAllValues().get(i);
+            List<Object[]> second = batches.getAllValues().get(3 + i);
+            assertEquals(1, first.size());
+            assertArrayEquals(first.get(0), second.get(0));
+        }
+        // the stored candle is replaced by the recomputed one, never folded into itself
+        String upsert = statements.getAllValues().get(0);
+        String updates = upsert.substring(upsert.indexOf("DO UPDATE SET"));
+        assertFalse(updates.contains("rate_candles."));
+        assertTrue(updates.contains("tick_count = EXCLUDED.tick_count"));
+    }
+
+    @Test
+    @DisplayName("record() does nothing without averages")
+    void testRecord_Empty() {
+        // Act
+        candleService.record(List.of());
+
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("getCandles() aligns the range to buckets and rejects ranges over MAX_CANDLES")
+    void testGetCandles_Range() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2024, 3, 5, 14, 37);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 6, 14, 37);
+
+        // Act
+        candleService.getCandles("usd", CandleResolution.HOUR, from, to);
+
+        // Assert
+        verify(rateCandleRepository).findByCurrencyAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+                "USD", CandleResolution.HOUR, LocalDateTime.of(2024, 3, 5, 14, 0), to);
+        assertThrows(IllegalArgumentException.class,
+                () -> candleService.getCandles("USD", CandleResolution.MINUTE, from, to));
+        assertThrows(IllegalArgumentException.class,
+                () -> candleService.getCandles("USD", CandleResolution.DAY, to, from));
+    }
+
+    private AverageRate createAverageRate(String currency, double buy, double sell, LocalDateTime timestamp) {
+        AverageRate rate = new AverageRate();
+        rate.setCurrency(currency);
+        rate.setBuyRate(FixedPoint.of(buy));
+        rate.setSellRate(FixedPoint.of(sell));
+        rate.setTimestamp(timestamp);
+        return rate;
+    }
+}
@@ -1,16 +1,52 @@
 package task.privatbank.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.junit.jupiter.api.extension.ExtendWith;
+import reactor.core.publisher.Mono;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.currency.CurrencyCode;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.currency.FixedPoint;
+import task.privatbank.dto.AverageRateView;
 import task.privatbank.dto.CurrencyRateDTO;
+import task.privatbank.dto.RateChangeView;
 import task.privatbank.model.AverageRate;
+import task.privatbank.provider.CircuitBreakerRegistry;
+import task.privatbank.provider.ProviderExecutor;
+import task.privatbank.provider.RateLimiterRegistry;
+import task.privatbank.provider.RateProvider;
+import task.privatbank.provider.RequestHedger;
+import task.privatbank.provider.SnapshotCache;
 import task.privatbank.repository.AverageRateRepository;
+import task.privatbank.repository.MappedTickStore;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,9 +57,38 @@ class ExchangeRateServiceTest {
     @Mock
     private AverageRateRepository averageRateRepository;
 
+    @Mock
+    private CandleService candleService;
+
+    @Mock
+    private ObjectProvider<MappedTickStore> tickStore;
+
+    @Mock
+    private MappedTickStore mappedTickStore;
+
+    @Spy
+    private ExchangeProperties exchangeProperties = new ExchangeProperties();
+
+    @Spy
+    private CurrencyRegistry currencyRegistry = new CurrencyRegistry();
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
     @InjectMocks
     private ExchangeRateService exchangeRateService;
 
+    @Captor
+    private ArgumentCaptor<Collection<AverageRate>> averagesCaptor;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+    }
+
     @Test
     @DisplayName("saveAverageRate() saves average rate correctly")
     void testSaveAverageRate() {
@@ -38,23 +103,437 @@ class ExchangeRateServiceTest {
         );
 
         // Act
-        exchangeRateService.saveAverageRate(privatRates, monoRates, "USD");
+        exchangeRateService.saveAverageRate(List.of(privatRates, monoRates), "USD");
 
         // Assert
-        ArgumentCaptor<AverageRate> captor = ArgumentCaptor.forClass(AverageRate.class);
-        verify(averageRateRepository, times(1)).save(captor.capture());
+        verify(averageRateRepository, times(1)).upsert(averagesCaptor.capture());
 
-        AverageRate savedRate = captor.getValue();
+        AverageRate savedRate = averagesCaptor.getValue().iterator().next();
         assertEquals("USD", savedRate.getCurrency());
-        assertEquals(27.05, savedRate.getBuyRate());
-        assertEquals(27.35, savedRate.getSellRate());
+        assertEquals(FixedPoint.parse("27.05"), savedRate.getBuyRate());
+        assertEquals(FixedPoint.parse("27.35"), savedRate.getSellRate());
+    }
+
+    @Test
+    @DisplayName("saveAverageRate() averages only providers that quote the currency")
+    void testSaveAverageRate_MissingQuote() {
+        // Arrange
+        List<CurrencyRateDTO> privatRates = List.of(createCurrencyRate("USD", 27.0, 27.3));
+        List<CurrencyRateDTO> monoRates = List.of(createCurrencyRate("EUR", 30.1, 30.6));
+
+        // Act
+        exchangeRateService.saveAverageRate(List.of(privatRates, monoRates), "USD");
+
+        // Assert
+        verify(averageRateRepository).upsert(averagesCaptor.capture());
+        AverageRate savedRate = averagesCaptor.getValue().iterator().next();
+        assertEquals(FixedPoint.parse("27.0"), savedRate.getBuyRate());
+        assertEquals(FixedPoint.parse("27.3"), savedRate.getSellRate());
+    }
+
+    @Test
+    @DisplayName("saveAverageRate() skips saving when the quorum is not reached")
+    void testSaveAverageRate_QuorumNotReached() {
+        // Arrange
+        exchangeProperties.getIngestion().setQuorum(2);
+        List<CurrencyRateDTO> privatRates = List.of(createCurrencyRate("USD", 27.0, 27.3));
+
+        // Act
+        exchangeRateService.saveAverageRate(List.of(privatRates, List.of()), "USD");
+
+        // Assert
+        verify(averageRateRepository, never()).upsert(any());
+    }
+
+    @Test
+    @DisplayName("saveAverageRate() saves different currencies in parallel")
+    void testSaveAverageRate_ParallelCurrencies() throws Exception {
+        // Arrange: each save waits until the other currency is saving too
+        CyclicBarrier bothInside = new CyclicBarrier(2);
+        when(averageRateRepository.upsert(any())).thenAnswer(invocation -> {
+            bothInside.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        List<CurrencyRateDTO> rates = List.of(createCurrencyRate("USD", 27.0, 27.3),
+                createCurrencyRate("EUR", 30.0, 30.5));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        try {
+            Future<?> usd = executor.submit(() -> exchangeRateService.saveAverageRate(List.of(rates), "USD"));
+            Future<?> eur = executor.submit(() -> exchangeRateService.saveAverageRate(List.of(rates), "EUR"));
+
+            // Assert: under a single global lock the barrier would time out
+            usd.get(10, TimeUnit.SECONDS);
+            eur.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(averageRateRepository, times(2)).upsert(any());
+    }
+
+    @Test
+    @DisplayName("saveAverageRate() never runs two saves of the same currency at once under contention")
+    void testSaveAverageRate_StressSameCurrency() throws Exception {
+        // Arrange
+        List<String> currencies = List.of("USD", "EUR", "GBP", "PLN");
+        int savesPerThread = 200;
+        Map<String, AtomicInteger> inside = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        when(averageRateRepository.upsert(any())).thenAnswer(invocation -> {
+            Collection<AverageRate> saved = invocation.getArgument(0);
+            AverageRate rate = saved.iterator().next();
+            AtomicInteger same = inside.computeIfAbsent(rate.getCurrency(), key -> new AtomicInteger());
+            if (same.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.yield();
+            running.decrementAndGet();
+            same.decrementAndGet();
+            return List.of();
+        });
+        List<CurrencyRateDTO> rates = currencies.stream().map(ccy -> createCurrencyRate(ccy, 27.0, 27.3)).toList();
+        ExecutorService executor = Executors.newFixedThreadPool(2 * currencies.size());
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act: two threads per currency
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2 * currencies.size(); i++) {
+                String currency = currencies.get(i % currencies.size());
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < savesPerThread; n++) {
+                        exchangeRateService.saveAverageRate(List.of(rates), currency);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        assertEquals(0, overlaps.get());
+        assertTrue(peak.get() <= currencies.size());
+        verify(averageRateRepository, times(2 * currencies.size() * savesPerThread)).upsert(any());
+    }
+
+    @Test
+    @DisplayName("saveAverageRate() commits before the next save of the same currency starts writing")
+    void testSaveAverageRate_LockCoversCommit() throws Exception {
+        // Arrange: a write is open from its upsert until its commit returns
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        when(averageRateRepository.upsert(any())).thenAnswer(invocation -> {
+            if (open.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            return List.of();
+        });
+        doAnswer(invocation -> {
+            Thread.yield();
+            open.decrementAndGet();
+            return null;
+        }).when(transactionManager).commit(any());
+        List<CurrencyRateDTO> rates = List.of(createCurrencyRate("USD", 27.0, 27.3));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int n = 0; n < 200; n++) {
+                        exchangeRateService.saveAverageRate(List.of(rates), "USD");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        assertEquals(0, overlaps.get());
+        verify(transactionManager, times(400)).commit(any());
+    }
+
+    @Test
+    @DisplayName("saveAverageRates() upserts all currencies in one batch keyed by the shared bucket start")
+    void testSaveAverageRates_Bulk() {
+        // Arrange
+        List<CurrencyRateDTO> privatRates = List.of(
+                createCurrencyRate("USD", 27.0, 27.3),
+                createCurrencyRate("EUR", 30.0, 30.5)
+        );
+        List<CurrencyRateDTO> monoRates = List.of(
+                createCurrencyRate("EUR", 30.1, 30.6),
+                createCurrencyRate("USD", 27.1, 27.4)
+        );
+        when(averageRateRepository.upsert(any())).thenAnswer(
+                invocation -> List.copyOf(invocation.<Collection<AverageRate>>getArgument(0)));
+
+        // Act
+        List<AverageRate> saved = exchangeRateService.saveAverageRates(
+                List.of(privatRates, monoRates), currencyRegistry.requireAll(List.of("USD", "EUR", "GBP")));
+
+        // Assert
+        verify(averageRateRepository, times(1)).upsert(saved);
+        verify(candleService, times(1)).record(saved);
+        assertEquals(2, saved.size());
+        assertEquals("USD", saved.get(0).getCurrency());
+        assertEquals(FixedPoint.parse("27.05"), saved.get(0).getBuyRate());
+        assertEquals("EUR", saved.get(1).getCurrency());
+        assertEquals(FixedPoint.parse("30.55"), saved.get(1).getSellRate());
+        assertEquals(saved.get(0).getTimestamp(), saved.get(1).getTimestamp());
+        // the default aggregate interval is one hour
+        assertEquals(saved.get(0).getTimestamp().truncatedTo(ChronoUnit.HOURS), saved.get(0).getTimestamp());
+    }
+
+    @Test
+    @DisplayName("persistAverages() recomputes no candles when replaying averages that are already stored")
+    void testPersistAverages_ReplayUnchanged() {
+        // Arrange
+        AverageRate average = createAverage("USD", 410_000, LocalDateTime.of(2024, 5, 1, 10, 0));
+        when(averageRateRepository.upsert(any())).thenReturn(List.of(average), List.of());
+
+        // Act
+        exchangeRateService.persistAverages(List.of(average));
+        exchangeRateService.persistAverages(List.of(average));
+
+        // Assert
+        verify(averageRateRepository, times(2)).upsert(any());
+        verify(candleService, times(1)).record(List.of(average));
+    }
+
+    @Test
+    @DisplayName("persistAverages() in run-length mode extends the latest stored row while the rate is unchanged")
+    void testPersistAverages_RunLength() {
+        // Arrange
+        exchangeProperties.getStorage().setRunLength(true);
+        LocalDateTime bucket = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(averageRateRepository.findLatest(List.of("USD"), bucket.toLocalDate().atStartOfDay()))
+                .thenReturn(Map.of("USD", createRow("USD", 410_000, bucket, bucket)));
+        when(averageRateRepository.extendRuns(anyList())).thenReturn(new boolean[]{true});
+        List<AverageRate> averages = List.of(createAverage("USD", 410_000, bucket.plusHours(2)),
+                createAverage("USD", 410_000, bucket.plusHours(1)));
+
+        // Act
+        exchangeRateService.persistAverages(averages);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AverageRate>> runs = ArgumentCaptor.forClass(List.class);
+        verify(averageRateRepository, times(1)).extendRuns(runs.capture());
+        AverageRate run = runs.getValue().get(0);
+        assertEquals(bucket, run.getTimestamp());
+        assertEquals(bucket.plusHours(2), run.getValidTo());
+        verify(averageRateRepository, never()).upsert(any());
+        verify(candleService).record(List.of(averages.get(1), averages.get(0)));
+    }
+
+    @Test
+    @DisplayName("persistAverages() in run-length mode writes nothing for a bucket the stored run covers")
+    void testPersistAverages_RunLengthCovered() {
+        // Arrange
+        exchangeProperties.getStorage().setRunLength(true);
+        LocalDateTime bucket = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(averageRateRepository.findLatest(anyCollection(), any()))
+                .thenReturn(Map.of("USD", createRow("USD", 410_000, bucket, bucket.plusHours(2))));
+
+        // Act
+        exchangeRateService.persistAverages(List.of(createAverage("USD", 410_000, bucket.plusHours(1))));
+
+        // Assert
+        verify(averageRateRepository, never()).extendRuns(anyList());
+        verify(averageRateRepository, never()).upsert(any());
+        verifyNoInteractions(candleService);
+    }
+
+    @Test
+    @DisplayName("persistAverages() in run-length mode cuts the run short when the rate of its last bucket changes")
+    void testPersistAverages_RunLengthChangedAtValidTo() {
+        // Arrange
+        LocalDateTime bucket = LocalDateTime.of(2024, 5, 1, 10, 0);
+        AverageRate average = arrangeRunOverwrite(bucket, bucket.plusHours(2), bucket.plusHours(2));
+
+        // Act
+        exchangeRateService.persistAverages(List.of(average));
+
+        // Assert: 10:00-11:00 keep the old rate, 12:00 gets the new one
+        ArgumentCaptor<AverageRate> head = ArgumentCaptor.forClass(AverageRate.class);
+        verify(averageRateRepository).rewrite(head.capture());
+        assertEquals(bucket, head.getValue().getTimestamp());
+        assertEquals(bucket.plusHours(1), head.getValue().getValidTo());
+        assertEquals(410_000, head.getValue().getBuyRate());
+        verify(averageRateRepository).upsert(averagesCaptor.capture());
+        assertEquals(List.of(average), List.copyOf(averagesCaptor.getValue()));
+        assertEquals(bucket.plusHours(2), average.getValidTo());
+        verify(averageRateRepository, never()).extendRuns(anyList());
+        verify(candleService).record(List.of(average));
+    }
+
+    @Test
+    @DisplayName("persistAverages() in run-length mode splits the run around a bucket in its middle with another rate")
+    void testPersistAverages_RunLengthChangedInside() {
+        // Arrange
+        LocalDateTime bucket = LocalDateTime.of(2024, 5, 1, 10, 0);
+        AverageRate average = arrangeRunOverwrite(bucket, bucket.plusHours(3), bucket.plusHours(1));
+
+        // Act
+        exchangeRateService.persistAverages(List.of(average));
+
+        // Assert: head 10:00, new rate 11:00, tail 12:00-13:00 with the old rate
+        ArgumentCaptor<AverageRate> head = ArgumentCaptor.forClass(AverageRate.class);
+        verify(averageRateRepository).rewrite(head.capture());
+        assertEquals(bucket, head.getValue().getValidTo());
+        verify(averageRateRepository).upsert(averagesCaptor.capture());
+        List<AverageRate> inserted = List.copyOf(averagesCaptor.getValue());
+        assertEquals(2, inserted.size());
+        AverageRate tail = inserted.get(0);
+        assertEquals(410_000, tail.getBuyRate());
+        assertEquals(bucket.plusHours(2), tail.getTimestamp());
+        assertEquals(bucket.plusHours(3), tail.getValidTo());
+        assertSame(average, inserted.get(1));
+        assertEquals(bucket.plusHours(1), average.getValidTo());
+        verify(candleService).record(List.of(average));
+    }
+
+    @Test
+    @DisplayName("persistAverages() in run-length mode replaces the first bucket of a run and keeps the rest")
+    void testPersistAverages_RunLengthChangedAtStart() {
+        // Arrange
+        LocalDateTime bucket = LocalDateTime.of(2024, 5, 1, 10, 0);
+        AverageRate average = arrangeRunOverwrite(bucket, bucket.plusHours(2), bucket);
+
+        // Act
+        exchangeRateService.persistAverages(List.of(average));
+
+        // Assert
+        verify(averageRateRepository).rewrite(average);
+        assertEquals(7L, average.getId());
+        assertEquals(bucket, average.getValidTo());
+        verify(averageRateRepository).upsert(averagesCaptor.capture());
+        AverageRate tail = averagesCaptor.getValue().iterator().next();
+        assertEquals(bucket.plusHours(1), tail.getTimestamp());
+        assertEquals(bucket.plusHours(2), tail.getValidTo());
+        assertEquals(410_000, tail.getBuyRate());
+    }
+
+    @Test
+    @DisplayName("replayAverages() in run-length mode leaves a bucket covered by a stored run with another rate alone")
+    void testReplayAverages_RunLengthCovered() {
+        // Arrange
+        exchangeProperties.getStorage().setRunLength(true);
+        LocalDateTime bucket = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(averageRateRepository.findLatest(anyCollection(), any()))
+                .thenReturn(Map.of("USD", createRow("USD", 410_000, bucket, bucket.plusHours(3))));
+        AverageRate inside = createAverage("USD", 412_000, bucket.plusHours(1));
+        AverageRate before = createAverage("USD", 412_000, bucket.minusHours(1));
+        AverageRate covered = createAverage("USD", 412_000, bucket.minusHours(2));
+        when(averageRateRepository.findCovering("USD", before.getTimestamp())).thenReturn(Optional.empty());
+        when(averageRateRepository.findCovering("USD", covered.getTimestamp()))
+                .thenReturn(Optional.of(createRow("USD", 405_000, bucket.minusHours(4), bucket.minusHours(2))));
+        when(averageRateRepository.upsert(List.of(before))).thenReturn(List.of(before));
+
+        // Act
+        exchangeRateService.replayAverages(List.of(inside, before, covered));
+
+        // Assert: only 09:00 lies outside every stored run; the run around 11:00 is not split
+        verify(averageRateRepository, never()).findCovering("USD", inside.getTimestamp());
+        verify(averageRateRepository, never()).rewrite(any());
+        verify(averageRateRepository, times(1)).upsert(any());
+        verify(candleService).record(List.of(before));
+    }
+
+    @Test
+    @DisplayName("persistAverages() in run-length mode inserts when the row was superseded and at midnight")
+    void testPersistAverages_RunLengthNewRow() {
+        // Arrange
+        exchangeProperties.getStorage().setRunLength(true);
+        LocalDateTime bucket = LocalDateTime.of(2024, 5, 1, 22, 0);
+        when(averageRateRepository.findLatest(anyCollection(), eq(bucket.toLocalDate().atStartOfDay())))
+                .thenReturn(Map.of("USD", createRow("USD", 410_000, bucket, bucket),
+                        "EUR", createRow("EUR", 450_000, bucket.plusHours(1), bucket.plusHours(1))));
+        // another writer added a later USD row, so the conditional extension hits no row
+        when(averageRateRepository.extendRuns(anyList())).thenReturn(new boolean[]{false});
+
+        // Act
+        exchangeRateService.persistAverages(List.of(createAverage("USD", 410_000, bucket.plusHours(1)),
+                createAverage("EUR", 450_000, bucket.plusHours(2))));
+
+        // Assert: USD 23:00 is inserted after the failed extension, EUR 00:00 of the next day right away
+        verify(averageRateRepository, times(1)).extendRuns(anyList());
+        verify(averageRateRepository).upsert(averagesCaptor.capture());
+        assertEquals(Set.of("USD@" + bucket.plusHours(1), "EUR@" + bucket.plusHours(2)),
+                averagesCaptor.getValue().stream()
+                        .map(average -> average.getCurrency() + "@" + average.getTimestamp())
+                        .collect(Collectors.toSet()));
+    }
+
+    @Test
+    @DisplayName("getTrackedCurrencies() with '*' tracks every quoted currency in numeric order")
+    void testGetTrackedCurrencies_All() {
+        // Arrange
+        exchangeProperties.getIngestion().setCurrencies(List.of("*"));
+        List<CurrencyRateDTO> privatRates = List.of(
+                createCurrencyRate("USD", 27.0, 27.3),
+                createCurrencyRate("EUR", 30.0, 30.5)
+        );
+        List<CurrencyRateDTO> monoRates = List.of(
+                createCurrencyRate("PLN", 6.8, 6.9),
+                createCurrencyRate("BTC", 1.0, 1.0)
+        );
+
+        // Act
+        List<CurrencyCode> tracked = exchangeRateService.getTrackedCurrencies(List.of(privatRates, monoRates));
+
+        // Assert
+        assertEquals(List.of("USD", "PLN", "EUR"), tracked.stream().map(CurrencyCode::alphaCode).toList());
+    }
+
+    @Test
+    @DisplayName("fetchAllRates() leaves out failing providers and keeps the others")
+    void testFetchAllRates_FailingProvider() {
+        // Arrange
+        RateProvider healthy = createProvider("healthy",
+                Mono.just(List.of(createCurrencyRate("USD", 27.0, 27.3))));
+        RateProvider failing = createProvider("failing",
+                Mono.error(new IllegalStateException("provider is down")));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SnapshotCache snapshotCache = new SnapshotCache();
+        ProviderExecutor providerExecutor = new ProviderExecutor(
+                new RateLimiterRegistry(exchangeProperties, meterRegistry),
+                new CircuitBreakerRegistry(exchangeProperties, meterRegistry),
+                snapshotCache, new RequestHedger(meterRegistry), exchangeProperties, meterRegistry);
+        ExchangeRateService service = new ExchangeRateService(averageRateRepository,
+                List.of(healthy, failing), providerExecutor, snapshotCache, exchangeProperties, currencyRegistry,
+                candleService, tickStore, transactionTemplate);
+
+        // Act
+        Map<String, List<CurrencyRateDTO>> rates = service.fetchAllRates().block();
+
+        // Assert
+        assertNotNull(rates);
+        assertEquals(Set.of("healthy"), rates.keySet());
+        assertEquals(Set.of("healthy"), service.getLatestProviderRates().keySet());
     }
 
     @Test
     @DisplayName("getHourlyDynamics() throws exception when data is insufficient")
     void testGetHourlyDynamics_NotEnoughData() {
         // Arrange
-        when(averageRateRepository.findByCurrencyAndTimestampAfterOrderByTimestampAsc(eq("USD"), any()))
+        when(averageRateRepository.findChangesByCurrencySince(eq("USD"), any()))
                 .thenReturn(List.of());
 
         // Act & Assert
@@ -65,47 +544,219 @@ class ExchangeRateServiceTest {
     @DisplayName("getHourlyDynamics() calculates hourly dynamics correctly")
     void testGetHourlyDynamics_ValidData() {
         // Arrange
-        AverageRate r1 = createAverageRate("USD", 27.0, LocalDateTime.now().minusHours(2));
-        AverageRate r2 = createAverageRate("USD", 27.3, LocalDateTime.now().minusHours(1));
+        // the database computes (273000 - 270000) * 10000 / 270000 basis points with LAG()
+        RateChangeView change = createRateChange("USD", LocalDateTime.now().minusHours(1), 111);
 
-        when(averageRateRepository.findByCurrencyAndTimestampAfterOrderByTimestampAsc(eq("USD"), any()))
-                .thenReturn(List.of(r1, r2));
+        when(averageRateRepository.findChangesByCurrencySince(eq("USD"), any()))
+                .thenReturn(List.of(change));
 
         // Act
         List<String> dynamics = exchangeRateService.getHourlyDynamics("USD");
 
         // Assert
         assertEquals(1, dynamics.size());
-        assertTrue(dynamics.get(0).contains("change: 1.11%")); // Example: ((27.3 - 27.0) / 27.0) * 100
+        assertTrue(dynamics.get(0).contains("change: 1.11%"));
+        verify(averageRateRepository, never()).findValidAfter(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("getHourlyDynamics() from the tick store leaves out zero changes, like the LAG() query")
+    void testGetHourlyDynamics_TickStoreSkipsZeroChanges() {
+        // Arrange
+        LocalDateTime start = LocalDate.now().atStartOfDay();
+        when(tickStore.getIfAvailable()).thenReturn(mappedTickStore);
+        when(mappedTickStore.findSince(eq("USD"), any())).thenReturn(List.of(
+                createAverageRateView("USD", 27.0, start),
+                createAverageRateView("USD", 27.0, start.plusHours(1)),
+                createAverageRateView("USD", 27.3, start.plusHours(2)),
+                createAverageRateView("USD", 27.3, start.plusHours(3))));
+
+        // Act
+        List<String> dynamics = exchangeRateService.getHourlyDynamics("USD");
+
+        // Assert
+        assertEquals(List.of("Time: " + start.plusHours(2) + ", change: 1.11%"), dynamics);
+        verify(averageRateRepository, never()).findChangesByCurrencySince(any(), any());
+    }
+
+    @Test
+    @DisplayName("getHourlyDynamicsForAll() groups the changes of all currencies from one query")
+    void testGetHourlyDynamicsForAll() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        when(averageRateRepository.findChangesSince(any())).thenReturn(List.of(
+                createRateChange("EUR", now.minusHours(2), 50),
+                createRateChange("EUR", now.minusHours(1), -25),
+                createRateChange("USD", now.minusHours(1), 111)));
+
+        // Act
+        Map<String, List<String>> dynamics = exchangeRateService.getHourlyDynamicsForAll();
+
+        // Assert
+        assertEquals(List.of("EUR", "USD"), List.copyOf(dynamics.keySet()));
+        assertEquals(2, dynamics.get("EUR").size());
+        assertTrue(dynamics.get("EUR").get(1).contains("change: -0.25%"));
+        verify(averageRateRepository, times(1)).findChangesSince(any());
     }
 
     @Test
     @DisplayName("getLastHourChange() throws exception when not enough data")
     void testGetLastHourChange_NotEnoughData() {
         // Arrange
-        when(averageRateRepository.findTop2ByCurrencyOrderByTimestampDesc(eq("USD")))
+        when(averageRateRepository.findTop2ByCurrencyAndTimestampAfterOrderByTimestampDesc(eq("USD"), any()))
                 .thenReturn(List.of());
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> exchangeRateService.getLastHourChange("USD"));
     }
 
+    @Test
+    @DisplayName("getLastHourChange() is zero while the latest row also covers the bucket before its last")
+    void testGetLastHourChange_Run() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        AverageRateView run = new AverageRateView(1L, "USD", 275_000, 0, now.minusHours(3), now);
+        when(averageRateRepository.findTop2ByCurrencyAndTimestampAfterOrderByTimestampDesc(eq("USD"), any()))
+                .thenReturn(List.of(run));
+
+        // Act
+        long change = exchangeRateService.getLastHourChange("USD");
+
+        // Assert
+        assertEquals(0, change);
+    }
+
+    @Test
+    @DisplayName("getLastHourChange() compares a new rate with the run it follows")
+    void testGetLastHourChange_AfterRun() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        AverageRateView latest = createAverageRateView("USD", 27.5, now);
+        AverageRateView run = new AverageRateView(1L, "USD", FixedPoint.of(27.0), 0, now.minusHours(5), now.minusHours(1));
+        when(averageRateRepository.findTop2ByCurrencyAndTimestampAfterOrderByTimestampDesc(eq("USD"), any()))
+                .thenReturn(List.of(latest, run));
+
+        // Act
+        long change = exchangeRateService.getLastHourChange("USD");
+
+        // Assert
+        assertEquals(185, change);
+    }
+
     @Test
     @DisplayName("getLastHourChange() calculates last hour change correctly")
     void testGetLastHourChange_ValidData() {
         // Arrange
-        AverageRate latest = createAverageRate("USD", 27.5, LocalDateTime.now());
-        AverageRate previous = createAverageRate("USD", 27.0, LocalDateTime.now().minusHours(1));
+        AverageRateView latest = createAverageRateView("USD", 27.5, LocalDateTime.now());
+        AverageRateView previous = createAverageRateView("USD", 27.0, LocalDateTime.now().minusHours(1));
 
-        when(averageRateRepository.findTop2ByCurrencyOrderByTimestampDesc(eq("USD")))
+        when(averageRateRepository.findTop2ByCurrencyAndTimestampAfterOrderByTimestampDesc(eq("USD"), any()))
                 .thenReturn(List.of(latest, previous));
 
         // Act
-        Double change = exchangeRateService.getLastHourChange("USD");
+        long change = exchangeRateService.getLastHourChange("USD");
 
         // Assert
-        assertNotNull(change);
-        assertEquals(1.85, change); // Example: ((27.5 - 27.0) / 27.0) * 100
+        assertEquals(185, change); // Example: ((27.5 - 27.0) / 27.0) * 100 = 1.85%
+        assertEquals("1.85", FixedPoint.formatBasisPoints(change));
+    }
+
+    @Test
+    @DisplayName("getLastRate() bounds the query by the configured lookback")
+    void testGetLastRate_Lookback() {
+        // Arrange
+        AverageRateView latest = createAverageRateView("USD", 27.5, LocalDateTime.now());
+        when(averageRateRepository.findTopByCurrencyAndTimestampAfterOrderByTimestampDesc(eq("USD"), any()))
+                .thenReturn(Optional.of(latest));
+
+        // Act
+        AverageRateView result = exchangeRateService.getLastRate("usd");
+
+        // Assert
+        assertSame(latest, result);
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(averageRateRepository).findTopByCurrencyAndTimestampAfterOrderByTimestampDesc(eq("USD"), since.capture());
+        assertTrue(since.getValue().isBefore(LocalDateTime.now().minusDays(30)));
+    }
+
+    @Test
+    @DisplayName("getLastRate() throws EntityNotFoundException when nothing is stored within the lookback")
+    void testGetLastRate_NotFound() {
+        // Arrange
+        when(averageRateRepository.findTopByCurrencyAndTimestampAfterOrderByTimestampDesc(eq("EUR"), any()))
+                .thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(EntityNotFoundException.class, () -> exchangeRateService.getLastRate("EUR"));
+    }
+
+    @Test
+    @DisplayName("saveAverageRates() appends the saved averages to the tick store when it is enabled")
+    void testSaveAverageRates_TickStore() {
+        // Arrange
+        when(tickStore.getIfAvailable()).thenReturn(mappedTickStore);
+        List<CurrencyRateDTO> rates = List.of(createCurrencyRate("USD", 27.0, 27.3));
+
+        // Act
+        List<AverageRate> saved = exchangeRateService.saveAverageRates(
+                List.of(rates), currencyRegistry.requireAll(List.of("USD")));
+
+        // Assert
+        verify(mappedTickStore, times(1)).append(saved);
+    }
+
+    @Test
+    @DisplayName("getLastHourChange() is served by the tick store when it holds two ticks")
+    void testGetLastHourChange_TickStore() {
+        // Arrange
+        when(tickStore.getIfAvailable()).thenReturn(mappedTickStore);
+        when(mappedTickStore.findLatest(eq("USD"), any(), eq(2))).thenReturn(List.of(
+                createAverageRateView("USD", 27.5, LocalDateTime.now()),
+                createAverageRateView("USD", 27.0, LocalDateTime.now().minusHours(1))));
+
+        // Act
+        long change = exchangeRateService.getLastHourChange("USD");
+
+        // Assert
+        assertEquals(185, change);
+        verifyNoInteractions(averageRateRepository);
+    }
+
+    @Test
+    @DisplayName("getLastRate() falls back to the database while the tick store has no tick")
+    void testGetLastRate_TickStoreFallback() {
+        // Arrange
+        AverageRateView latest = createAverageRateView("USD", 27.5, LocalDateTime.now());
+        when(tickStore.getIfAvailable()).thenReturn(mappedTickStore);
+        when(mappedTickStore.findLatest(eq("USD"), any())).thenReturn(Optional.empty());
+        when(averageRateRepository.findTopByCurrencyAndTimestampAfterOrderByTimestampDesc(eq("USD"), any()))
+                .thenReturn(Optional.of(latest));
+
+        // Act
+        AverageRateView result = exchangeRateService.getLastRate("USD");
+
+        // Assert
+        assertSame(latest, result);
+    }
+
+    // Helper method to create RateChangeView
+    private RateChangeView createRateChange(String currency, LocalDateTime timestamp, long changeBps) {
+        return new RateChangeView() {
+            @Override
+            public String getCurrency() {
+                return currency;
+            }
+
+            @Override
+            public LocalDateTime getTimestamp() {
+                return timestamp;
+            }
+
+            @Override
+            public long getChangeBps() {
+                return changeBps;
+            }
+        };
     }
 
     // Helper method to create CurrencyRateDTO
@@ -113,17 +764,56 @@ class ExchangeRateServiceTest {
         CurrencyRateDTO dto = new CurrencyRateDTO();
         dto.setCcy(ccy);
         dto.setBase_ccy("UAH");
-        dto.setBuy(buy);
-        dto.setSale(sale);
+        dto.setBuy(FixedPoint.of(buy));
+        dto.setSale(FixedPoint.of(sale));
         return dto;
     }
 
-    // Helper method to create AverageRate
-    private AverageRate createAverageRate(String currency, double buyRate, LocalDateTime timestamp) {
+    // Helper method to create a RateProvider stub
+    private RateProvider createProvider(String name, Mono<List<CurrencyRateDTO>> rates) {
+        return new RateProvider() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Mono<List<CurrencyRateDTO>> fetchRates() {
+                return rates;
+            }
+        };
+    }
+
+    // Helper method to create AverageRateView
+    private AverageRate createAverage(String currency, long buyRate, LocalDateTime bucket) {
         AverageRate rate = new AverageRate();
         rate.setCurrency(currency);
         rate.setBuyRate(buyRate);
-        rate.setTimestamp(timestamp);
+        rate.setSellRate(buyRate + 5_000);
+        rate.setTimestamp(bucket);
         return rate;
     }
+
+    /**
+     * Stores a run [start, validTo] at 41.0000 and returns an average at 41.2000 for the given bucket.
+     */
+    private AverageRate arrangeRunOverwrite(LocalDateTime start, LocalDateTime validTo, LocalDateTime bucket) {
+        exchangeProperties.getStorage().setRunLength(true);
+        when(averageRateRepository.findLatest(anyCollection(), any()))
+                .thenReturn(Map.of("USD", createRow("USD", 410_000, start, validTo)));
+        AverageRate covering = createRow("USD", 410_000, start, validTo);
+        covering.setId(7L);
+        when(averageRateRepository.findCovering("USD", bucket)).thenReturn(Optional.of(covering));
+        return createAverage("USD", 412_000, bucket);
+    }
+
+    private AverageRate createRow(String currency, long buyRate, LocalDateTime timestamp, LocalDateTime validTo) {
+        AverageRate row = createAverage(currency, buyRate, timestamp);
+        row.setValidTo(validTo);
+        return row;
+    }
+
+    private AverageRateView createAverageRateView(String currency, double buyRate, LocalDateTime timestamp) {
+        return new AverageRateView(null, currency, FixedPoint.of(buyRate), 0, timestamp);
+    }
 }
@@ -0,0 +1,141 @@
+package task.privatbank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import task.privatbank.currency.CurrencyRegistry;
+import task.privatbank.dto.AverageRateView;
+import task.privatbank.dto.ExportFormat;
+import task.privatbank.dto.HistoryCursor;
+import task.privatbank.dto.HistoryPage;
+import task.privatbank.repository.AverageRateRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryServiceTest {
+
+    @Mock
+    private AverageRateRepository averageRateRepository;
+
+    @Spy
+    private CurrencyRegistry currencyRegistry = new CurrencyRegistry();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @InjectMocks
+    private HistoryService historyService;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    @DisplayName("getHistory() returns a cursor pointing at the last row when more rows follow")
+    void testGetHistory_NextCursor() {
+        // Arrange
+        LocalDateTime to = now;
+        when(averageRateRepository.findHistoryPage(eq("USD"), any(), any(), eq(to), eq(Long.MAX_VALUE), eq(Limit.of(3))))
+                .thenReturn(List.of(view(30, now), view(29, now.minusHours(1)), view(28, now.minusHours(2))));
+
+        // Act
+        HistoryPage page = historyService.getHistory("USD", null, to, null, 2);
+
+        // Assert
+        assertEquals(2, page.items().size());
+        assertEquals(new HistoryCursor(now.minusHours(1), 29), HistoryCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    @DisplayName("getHistory() continues strictly after the cursor and ends without a next cursor")
+    void testGetHistory_LastPage() {
+        // Arrange
+        String cursor = new HistoryCursor(now.minusHours(1), 29).encode();
+        LocalDateTime from = now.minusDays(1);
+        when(averageRateRepository.findHistoryPage("USD", from.toLocalDate().atStartOfDay(), from,
+                now.minusHours(1), 29L, Limit.of(3)))
+                .thenReturn(List.of(view(28, now.minusHours(2))));
+
+        // Act
+        HistoryPage page = historyService.getHistory("usd", from, null, cursor, 2);
+
+        // Assert
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("getHistory() rejects malformed cursors and oversized pages")
+    void testGetHistory_Invalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> historyService.getHistory("USD", null, null, "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> historyService.getHistory("USD", null, null, null, HistoryService.MAX_PAGE_SIZE + 1));
+        verifyNoInteractions(averageRateRepository);
+    }
+
+    @Test
+    @DisplayName("export() writes a CSV header and one line per streamed row, including runs begun before from")
+    void testExport_Csv() throws Exception {
+        // Arrange
+        LocalDateTime from = now.minusDays(1);
+        when(averageRateRepository.streamHistory("USD", from.toLocalDate().atStartOfDay(), from, now))
+                .thenReturn(Stream.of(
+                        new AverageRateView(1L, "USD", 410_000, 415_000, from.minusHours(2), now.minusHours(2)),
+                        view(2, now.minusHours(1))));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long count = historyService.export("usd", from, now, ExportFormat.CSV, output);
+
+        // Assert
+        assertEquals(2, count);
+        assertEquals("id,currency,timestamp,buy_rate,sell_rate,valid_to\n"
+                + "1,USD,2024-04-30T10:00,41.0,41.5,2024-05-01T10:00\n"
+                + "2,USD,2024-05-01T11:00,41.0,41.5,2024-05-01T11:00\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("export() writes one JSON object per line as NDJSON and closes the row stream")
+    void testExport_Ndjson() throws Exception {
+        // Arrange
+        AtomicBoolean closed = new AtomicBoolean();
+        when(averageRateRepository.streamHistory(eq("USD"), any(), any(), any()))
+                .thenReturn(Stream.of(view(1, now.minusHours(2)), view(2, now.minusHours(1)))
+                        .onClose(() -> closed.set(true)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long count = historyService.export("USD", null, null, ExportFormat.NDJSON, output);
+
+        // Assert
+        assertEquals(2, count);
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":2,\"currency\":\"USD\",\"buyRate\":41.0,\"sellRate\":41.5,"
+                + "\"timestamp\":\"2024-05-01T11:00:00\",\"validTo\":\"2024-05-01T11:00:00\"}", lines[1]);
+        assertTrue(closed.get());
+    }
+
+    private AverageRateView view(long id, LocalDateTime timestamp) {
+        return new AverageRateView(id, "USD", 410_000, 415_000, timestamp);
+    }
+}
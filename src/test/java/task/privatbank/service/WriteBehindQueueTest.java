@@ -0,0 +1,136 @@
+package task.privatbank.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import task.privatbank.config.ExchangeProperties;
+import task.privatbank.model.AverageRate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindQueueTest {
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    private WriteBehindQueue queue;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        queue.stop();
+    }
+
+    @Test
+    @DisplayName("the flusher writes queued averages in batches of at most batch-size")
+    void testFlusher_Batches() {
+        // Arrange
+        queue = create(10, 2);
+        List<List<AverageRate>> batches = new ArrayList<>();
+        doAnswer(invocation -> batches.add(List.copyOf(invocation.getArgument(0))))
+                .when(exchangeRateService).persistAverages(anyList());
+
+        // Act
+        int queued = queue.offer(List.of(rate(0), rate(1), rate(2)));
+        queue.start();
+
+        // Assert
+        assertEquals(3, queued);
+        verify(exchangeRateService, timeout(2_000).times(2)).persistAverages(anyList());
+        queue.stop();
+        assertEquals(List.of(2, 1), batches.stream().map(List::size).toList());
+        assertEquals(3.0, meterRegistry.get("exchange.write-behind.flushed").counter().count());
+    }
+
+    @Test
+    @DisplayName("offer() spills what does not fit into a full queue, and the replay writes it")
+    void testOffer_SpillAndReplay() throws Exception {
+        // Arrange
+        queue = create(1, 10);
+
+        // Act
+        int queued = queue.offer(List.of(rate(0), rate(1), rate(2)));
+        queue.replaySpill();
+
+        // Assert
+        assertEquals(1, queued);
+        assertEquals(1, queue.size());
+        assertEquals(2.0, meterRegistry.get("exchange.write-behind.spilled").counter().count());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AverageRate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(exchangeRateService).replayAverages(captor.capture());
+        assertEquals(List.of(rate(1), rate(2)), captor.getValue());
+        verify(exchangeRateService, never()).persistAverages(anyList());
+        assertFalse(Files.exists(directory.resolve("spill")));
+        assertFalse(Files.exists(directory.resolve("spill.replaying")));
+    }
+
+    @Test
+    @DisplayName("flush() retries a failing batch, then spills it; a failed replay keeps it spilled")
+    void testFlush_RetryThenSpill() throws Exception {
+        // Arrange
+        queue = create(10, 10);
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(exchangeRateService).persistAverages(anyList());
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(exchangeRateService).replayAverages(anyList());
+
+        // Act
+        boolean written = queue.flush(new ArrayList<>(List.of(rate(0), rate(1))));
+        queue.replaySpill();
+
+        // Assert
+        assertFalse(written);
+        verify(exchangeRateService, times(3 + 1)).persistAverages(anyList());
+        verify(exchangeRateService).replayAverages(anyList());
+        assertEquals(3.0, meterRegistry.get("exchange.write-behind.retries").counter().count());
+        assertEquals(List.of("USD,2024-05-01T00:00,410000,415000", "USD,2024-05-01T01:00,410001,415001"),
+                Files.readAllLines(directory.resolve("spill")));
+        assertFalse(Files.exists(directory.resolve("spill.replaying")));
+    }
+
+    private WriteBehindQueue create(int capacity, int batchSize) {
+        ExchangeProperties properties = new ExchangeProperties();
+        ExchangeProperties.WriteBehind settings = properties.getStorage().getWriteBehind();
+        settings.setCapacity(capacity);
+        settings.setBatchSize(batchSize);
+        settings.setFlushInterval(Duration.ofMillis(100));
+        settings.setOfferTimeout(Duration.ZERO);
+        settings.setRetryBackoff(Duration.ofMillis(1));
+        settings.setMaxRetryBackoff(Duration.ofMillis(2));
+        settings.setSpillFile(directory.resolve("spill"));
+        return new WriteBehindQueue(exchangeRateService, properties, meterRegistry);
+    }
+
+    private AverageRate rate(int hour) {
+        AverageRate rate = new AverageRate();
+        rate.setCurrency("USD");
+        rate.setBuyRate(410_000 + hour);
+        rate.setSellRate(415_000 + hour);
+        rate.setTimestamp(start.plusHours(hour));
+        return rate;
+    }
+}